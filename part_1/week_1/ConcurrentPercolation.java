@@ -0,0 +1,340 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ConcurrentPercolation {
+    /*
+    Thread-safe Percolation on top of a lock-free union-find: roots are linked with a CAS on the parent slot
+    (randomized linking by a fixed hash priority keeps trees shallow in expectation) and find performs path splitting
+    with CAS, so a failed compression is harmless. As in Percolation, a second union-find without the virtual bottom
+    site avoids backwash, since per-root flags cannot be merged atomically with the link.
+
+    open() announces itself in the write word (one AtomicLong: the number of opens begun in the high half, the number
+    in flight in the low half), publishes the site as OPEN with a CAS, performs the unions with its open neighbors
+    and counts the site. Two adjacent sites opened concurrently always get connected, since each is published before
+    it looks at the other. isOpen is a single volatile read (wait-free) and open() is linearized at the publishing
+    CAS. numberOfOpenSites/isFull/percolates are validated like a seqlock read: they wait until no open is in flight,
+    read, and retry if an open began meanwhile. A successful read saw a state without partially applied opens, which
+    is exactly the sequential state after the opens published before it, so every query is linearizable and queries
+    read together are consistent. The price is that those three queries can be held up by a steady stream of opens;
+    open() itself never waits, and re-opening an open site does not touch the write word at all.
+     */
+    private static final int CLOSED = 0;
+    private static final int OPEN = 1;
+    private static final long WRITE_BEGIN = (1L << 32) + 1;
+
+    private final AtomicIntegerArray state;
+    private final AtomicIntegerArray connections;
+    private final AtomicIntegerArray connectionsIgnoreVirtualLast;
+    private final AtomicInteger openSites;
+    private final AtomicLong writes;
+    private final int n;
+
+    public ConcurrentPercolation(int n) {
+        if (n < 1) {
+            throw new IllegalArgumentException(String.format("n required to be positive, got %d", n));
+        }
+        this.n = n;
+        this.state = new AtomicIntegerArray(n * n + 2);  // n x n grid + 2 virtual sites
+        this.connections = new AtomicIntegerArray(n * n + 2);
+        this.connectionsIgnoreVirtualLast = new AtomicIntegerArray(n * n + 2);
+        for (int i = 0; i < this.connections.length(); ++i) {
+            this.connections.set(i, i);
+            this.connectionsIgnoreVirtualLast.set(i, i);
+        }
+        this.openSites = new AtomicInteger(0);
+        this.writes = new AtomicLong(0);
+    }
+
+    public void open(int row, int col) {
+        this.assertCoordinatesValid(row, col);
+
+        int idx = this.toSingleIndex(row, col);
+        if (this.state.get(idx) == OPEN) {
+            return;
+        }
+        this.writes.addAndGet(WRITE_BEGIN);
+        // a failed CAS means another thread published the site first, it is open either way
+        if (this.state.compareAndSet(idx, CLOSED, OPEN)) {
+            this.connectToNeighbors(idx, row, col);
+            this.openSites.incrementAndGet();
+        }
+        this.writes.decrementAndGet();
+    }
+
+    private void connectToNeighbors(int idx, int row, int col) {
+
+        if (row > 1) {
+            this.connectIfOpen(idx, idx - this.n);
+        } else {
+            this.connect(0, idx, this.connections);
+            this.connect(0, idx, this.connectionsIgnoreVirtualLast);
+        }
+        if (row < this.n) {
+            this.connectIfOpen(idx, idx + this.n);
+        } else {
+            this.connect(this.connections.length() - 1, idx, this.connections);
+        }
+        if (col > 1) {
+            this.connectIfOpen(idx, idx - 1);
+        }
+        if (col < this.n) {
+            this.connectIfOpen(idx, idx + 1);
+        }
+    }
+
+    public boolean isOpen(int row, int col) {
+        this.assertCoordinatesValid(row, col);
+        return this.state.get(this.toSingleIndex(row, col)) == OPEN;
+    }
+
+    public boolean isFull(int row, int col) {
+        this.assertCoordinatesValid(row, col);
+        int idx = this.toSingleIndex(row, col);
+        while (true) {
+            long version = this.awaitQuiescence();
+            boolean isFull = this.state.get(idx) == OPEN && this.hasSameRoot(0, idx, this.connectionsIgnoreVirtualLast);
+            if (this.writes.get() == version) {
+                return isFull;
+            }
+        }
+    }
+
+    public int numberOfOpenSites() {
+        while (true) {
+            long version = this.awaitQuiescence();
+            int openSites = this.openSites.get();
+            if (this.writes.get() == version) {
+                return openSites;
+            }
+        }
+    }
+
+    public boolean percolates() {
+        while (true) {
+            long version = this.awaitQuiescence();
+            boolean percolates = this.hasSameRoot(0, this.connections.length() - 1, this.connections);
+            if (this.writes.get() == version) {
+                return percolates;
+            }
+        }
+    }
+
+    // spins until no open is in flight, returns the write word to validate the read against
+    private long awaitQuiescence() {
+        long version = this.writes.get();
+        while ((int) version != 0) {
+            Thread.onSpinWait();
+            version = this.writes.get();
+        }
+        return version;
+    }
+
+    private void connectIfOpen(int idx, int neighborIdx) {
+        if (this.state.get(neighborIdx) == OPEN) {
+            this.connect(idx, neighborIdx, this.connections);
+            this.connect(idx, neighborIdx, this.connectionsIgnoreVirtualLast);
+        }
+    }
+
+    private void connect(int i1, int i2, AtomicIntegerArray arr) {
+        int e1 = i1;
+        int e2 = i2;
+        while (true) {
+            e1 = this.find(e1, arr);
+            e2 = this.find(e2, arr);
+            if (e1 == e2) {
+                return;
+            }
+            if (ConcurrentPercolation.isLowerPriority(e2, e1)) {
+                int tmp = e1;
+                e1 = e2;
+                e2 = tmp;
+            }
+            // only succeeds if e1 is still a root, otherwise someone linked it meanwhile and we retry from there
+            if (arr.compareAndSet(e1, e1, e2)) {
+                return;
+            }
+        }
+    }
+
+    private boolean hasSameRoot(int i1, int i2, AtomicIntegerArray arr) {
+        int e1 = i1;
+        int e2 = i2;
+        while (true) {
+            e1 = this.find(e1, arr);
+            e2 = this.find(e2, arr);
+            if (e1 == e2) {
+                return true;
+            }
+            // e1 still being a root means the two sets were distinct at the moment of this read
+            if (arr.get(e1) == e1) {
+                return false;
+            }
+        }
+    }
+
+    private int find(int idx, AtomicIntegerArray arr) {
+        int e = idx;
+        int parent = arr.get(e);
+        while (e != parent) {
+            int grandparent = arr.get(parent);
+            arr.compareAndSet(e, parent, grandparent);  // path splitting, losing the race is fine
+            e = parent;
+            parent = grandparent;
+        }
+        return e;
+    }
+
+    private static boolean isLowerPriority(int i1, int i2) {
+        int p1 = ConcurrentPercolation.priority(i1);
+        int p2 = ConcurrentPercolation.priority(i2);
+        return p1 < p2 || (p1 == p2 && i1 < i2);
+    }
+
+    private static int priority(int idx) {
+        int h = idx * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private int toSingleIndex(int row, int col) {
+        return 1 + (row - 1) * this.n + (col - 1);
+    }
+
+    private void assertCoordinatesValid(int row, int col) {
+        if (row < 1 || col < 1 || row > this.n || col > this.n) {
+            throw new IllegalArgumentException(String.format("row and col required to be in range [1, n], got row = %d, col = %d", row, col));
+        }
+    }
+
+    /*
+    Stress test: concurrent opens must end in exactly the state of a sequential Percolation with the same open sites.
+    While the writers run, the main thread reads percolates(), numberOfOpenSites(), then isOpen/isFull of every site
+    and numberOfOpenSites() again. Since every query is linearizable and the grid only ever gains open sites, later
+    reads must account for everything earlier ones saw: no query regresses, every full site is open, the open sites
+    seen lie between the two counts, and a percolating grid shows an open top-bottom path in the isOpen reads.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors() * 2;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        long snapshots = 0;
+        for (int round = 0; round < rounds; ++round) {
+            ConcurrentPercolation concurrent = new ConcurrentPercolation(n);
+            Thread[] workers = new Thread[threads];
+            for (int t = 0; t < threads; ++t) {
+                long seed = round * 1000L + t;
+                workers[t] = new Thread(() -> ConcurrentPercolation.openRandomSites(concurrent, n, seed));
+                workers[t].start();
+            }
+            boolean[] wasFull = new boolean[n * n];
+            boolean[] wasOpen = new boolean[n * n];
+            boolean[] isOpen = new boolean[n * n];
+            boolean wasPercolating = false;
+            int previousCount = 0;
+            boolean running = true;
+            while (running) {
+                running = false;
+                for (Thread worker : workers) {
+                    running |= worker.isAlive();
+                }
+                boolean percolates = concurrent.percolates();
+                int counted = concurrent.numberOfOpenSites();
+                int openSeen = 0;
+                for (int row = 1; row <= n; ++row) {
+                    for (int col = 1; col <= n; ++col) {
+                        int idx = (row - 1) * n + (col - 1);
+                        isOpen[idx] = concurrent.isOpen(row, col);
+                        boolean isFull = concurrent.isFull(row, col);
+                        if ((wasOpen[idx] && !isOpen[idx]) || (wasFull[idx] && !isFull)) {
+                            throw new IllegalStateException(String.format("Site (%d, %d) stopped being open or full", row, col));
+                        }
+                        if (isFull && !concurrent.isOpen(row, col)) {
+                            throw new IllegalStateException(String.format("Site (%d, %d) full but not open", row, col));
+                        }
+                        wasOpen[idx] = isOpen[idx];
+                        wasFull[idx] = isFull;
+                        openSeen += isOpen[idx] ? 1 : 0;
+                    }
+                }
+                int countedAfter = concurrent.numberOfOpenSites();
+
+                if ((wasPercolating && !percolates) || counted < previousCount) {
+                    throw new IllegalStateException("percolates or numberOfOpenSites regressed");
+                }
+                if (openSeen < counted || openSeen > countedAfter) {
+                    throw new IllegalStateException(String.format("%d open sites seen, counted %d before and %d after", openSeen, counted, countedAfter));
+                }
+                if (percolates && (counted < n || !ConcurrentPercolation.hasOpenPath(isOpen, n))) {
+                    throw new IllegalStateException(String.format("Percolates with %d counted open sites and no open path", counted));
+                }
+                snapshots++;
+                wasPercolating = percolates;
+                previousCount = counted;
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+
+            Percolation sequential = new Percolation(n);
+            for (int row = 1; row <= n; ++row) {
+                for (int col = 1; col <= n; ++col) {
+                    if (concurrent.isOpen(row, col)) {
+                        sequential.open(row, col);
+                    }
+                }
+            }
+            for (int row = 1; row <= n; ++row) {
+                for (int col = 1; col <= n; ++col) {
+                    if (sequential.isFull(row, col) != concurrent.isFull(row, col)) {
+                        throw new IllegalStateException(String.format("isFull mismatch at (%d, %d)", row, col));
+                    }
+                }
+            }
+            if (sequential.numberOfOpenSites() != concurrent.numberOfOpenSites() || sequential.percolates() != concurrent.percolates()) {
+                throw new IllegalStateException("numberOfOpenSites or percolates mismatch");
+            }
+        }
+        System.out.printf("%d rounds with %d threads on a %d x %d grid consistent with sequential Percolation\n", rounds, threads, n, n);
+        System.out.printf("%d concurrent snapshots consistent\n", snapshots);
+    }
+
+    // breadth-first search from the open top row sites through the given open sites
+    private static boolean hasOpenPath(boolean[] isOpen, int n) {
+        boolean[] visited = new boolean[n * n];
+        int[] queue = new int[n * n];
+        int head = 0;
+        int tail = 0;
+        for (int col = 0; col < n; ++col) {
+            if (isOpen[col]) {
+                visited[col] = true;
+                queue[tail++] = col;
+            }
+        }
+        while (head < tail) {
+            int idx = queue[head++];
+            if (idx >= n * (n - 1)) {
+                return true;
+            }
+            int row = idx / n;
+            int col = idx % n;
+            int[] neighbors = {row > 0 ? idx - n : -1, idx + n, col > 0 ? idx - 1 : -1, col < n - 1 ? idx + 1 : -1};
+            for (int neighbor : neighbors) {
+                if (neighbor >= 0 && isOpen[neighbor] && !visited[neighbor]) {
+                    visited[neighbor] = true;
+                    queue[tail++] = neighbor;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static void openRandomSites(ConcurrentPercolation percolation, int n, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 0; i < n * n / 2; ++i) {
+            percolation.open(random.nextInt(1, n + 1), random.nextInt(1, n + 1));
+        }
+    }
+}
@@ -0,0 +1,78 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class MappedMemory implements AutoCloseable {
+    /*
+    Long-addressed view over a memory-mapped file. A single MappedByteBuffer is limited to 2^31 bytes, so the file is
+    mapped as a series of 1 GiB segments. Ints and longs are only ever accessed at aligned offsets, so they never
+    straddle a segment boundary.
+     */
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+    private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final long size;
+
+    public MappedMemory(Path file, long size) throws IOException {
+        if (size < 1) {
+            throw new IllegalArgumentException(String.format("size required to be positive, got %d", size));
+        }
+        this.size = size;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        int segmentCount = (int) ((size + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT);
+        this.segments = new MappedByteBuffer[segmentCount];
+        for (int i = 0; i < segmentCount; ++i) {
+            long position = (long) i << SEGMENT_SHIFT;
+            long length = Math.min(SEGMENT_SIZE, size - position);
+            // mapping beyond the end of the file grows it; untouched pages stay sparse and read as zero
+            this.segments[i] = this.channel.map(FileChannel.MapMode.READ_WRITE, position, length);
+            this.segments[i].order(ByteOrder.nativeOrder());
+        }
+    }
+
+    public long size() {
+        return this.size;
+    }
+
+    public byte getByte(long offset) {
+        return this.segments[(int) (offset >>> SEGMENT_SHIFT)].get((int) (offset & SEGMENT_MASK));
+    }
+
+    public void putByte(long offset, byte value) {
+        this.segments[(int) (offset >>> SEGMENT_SHIFT)].put((int) (offset & SEGMENT_MASK), value);
+    }
+
+    public int getInt(long offset) {
+        return this.segments[(int) (offset >>> SEGMENT_SHIFT)].getInt((int) (offset & SEGMENT_MASK));
+    }
+
+    public void putInt(long offset, int value) {
+        this.segments[(int) (offset >>> SEGMENT_SHIFT)].putInt((int) (offset & SEGMENT_MASK), value);
+    }
+
+    public long getLong(long offset) {
+        return this.segments[(int) (offset >>> SEGMENT_SHIFT)].getLong((int) (offset & SEGMENT_MASK));
+    }
+
+    public void putLong(long offset, long value) {
+        this.segments[(int) (offset >>> SEGMENT_SHIFT)].putLong((int) (offset & SEGMENT_MASK), value);
+    }
+
+    public void force() {
+        for (MappedByteBuffer segment : this.segments) {
+            segment.force();
+        }
+    }
+
+    // the mappings themselves are released by the garbage collector, Java offers no explicit unmap
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+}
@@ -0,0 +1,306 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class MappedPercolation implements AutoCloseable {
+    /*
+    Long-indexed variant of SingleUnionFindPercolation for grids with more than 2^31 sites. Parents, ranks and site
+    state live in a memory-mapped file laid out as [header: 32 bytes][parent: 8 bytes per site][rank: 1 byte per site]
+    [state: 1 byte per site], so the grid is bounded by disk and address space rather than by the heap.
+    Parents are stored as parent + 1 with 0 meaning "root of itself". Together with zero ranks and a zero state
+    meaning "closed", a freshly created (sparse, all zero) file is a valid empty grid and needs no initialization pass.
+
+    The file is the live state, not a snapshot: opens after a checkpoint go straight into it, so restore() brings back
+    the latest state that reached the file, not the one at the last checkpoint. checkpoint() writes the header
+    ([magic][version][n][percolates][dirty: 8 bytes][open sites: 8 bytes], native byte order), clears the dirty word
+    and forces the mapping to disk. The first open() after a checkpoint sets the dirty word and forces it before
+    touching any site, so a clean header always matches the data. restore() maps the file again; for a clean file that
+    is all, a dirty one is repaired in one O(n^2) pass first: every open site is unioned again with its open neighbours
+    (unions are idempotent, so an open() cut short is completed), the roots' top/bottom flags are rebuilt from the open
+    sites' rows and the open site count and the percolation latch are recomputed.
+     */
+    private static final int CHECKPOINT_MAGIC = 0x4D504552;  // "MPER"
+    private static final int CHECKPOINT_VERSION = 2;
+    private static final int HEADER_BYTES = 32;
+    private static final int PERCOLATES_OFFSET = 12;
+    private static final int DIRTY_OFFSET = 16;
+    private static final int OPEN_SITES_OFFSET = 24;
+    private static final int OPEN = 1;
+    private static final int TOUCHES_TOP = 1 << 1;
+    private static final int TOUCHES_BOTTOM = 1 << 2;
+
+    private final MappedMemory memory;
+    private final Path temporaryFile;
+    private final long parentOffset;
+    private final long rankOffset;
+    private final long stateOffset;
+    private long openSites;
+    private boolean percolates;
+    private boolean dirty;
+    private final int n;
+
+    public MappedPercolation(int n) {
+        this(n, MappedPercolation.createTemporaryFile(), true);
+    }
+
+    // the file is expected not to exist yet or to be empty
+    public MappedPercolation(int n, Path file) {
+        this(n, file, false);
+    }
+
+    private MappedPercolation(int n, Path file, boolean isTemporary) {
+        if (n < 1) {
+            throw new IllegalArgumentException(String.format("n required to be positive, got %d", n));
+        }
+        this.n = n;
+        long sites = (long) n * n;
+        this.parentOffset = HEADER_BYTES;
+        this.rankOffset = this.parentOffset + sites * Long.BYTES;
+        this.stateOffset = this.rankOffset + sites;
+        try {
+            this.memory = new MappedMemory(file, this.stateOffset + sites);
+        } catch (IOException exc) {
+            throw new UncheckedIOException(exc);
+        }
+        this.temporaryFile = isTemporary ? file : null;
+        this.dirty = this.memory.getLong(DIRTY_OFFSET) != 0;
+        if (this.dirty) {
+            this.recover();
+        } else {
+            this.openSites = this.memory.getLong(OPEN_SITES_OFFSET);
+            this.percolates = this.memory.getInt(PERCOLATES_OFFSET) != 0;
+        }
+    }
+
+    // reopens a file written by checkpoint(), the mapped file itself becomes the live state again
+    // a file with opens after its last checkpoint is repaired and reflects those opens too
+    public static MappedPercolation restore(Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.nativeOrder());
+        long fileSize;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            fileSize = channel.size();
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) {
+                    throw new IllegalArgumentException("File too short for a MappedPercolation checkpoint");
+                }
+            }
+        }
+        header.flip();
+        int magic = header.getInt();
+        int version = header.getInt();
+        if (magic != CHECKPOINT_MAGIC) {
+            throw new IllegalArgumentException(String.format("Not a MappedPercolation checkpoint, got magic %08x", magic));
+        }
+        if (version != CHECKPOINT_VERSION) {
+            throw new IllegalArgumentException(String.format("Unsupported checkpoint version %d, expected %d", version, CHECKPOINT_VERSION));
+        }
+        int n = header.getInt();
+        long expectedSize = HEADER_BYTES + (long) n * n * (Long.BYTES + 2);
+        if (n < 1 || fileSize != expectedSize) {
+            throw new IllegalArgumentException(String.format("Corrupt checkpoint, n = %d does not match file size %d", n, fileSize));
+        }
+        return new MappedPercolation(n, file, false);
+    }
+
+    public void checkpoint() {
+        this.memory.putInt(0, CHECKPOINT_MAGIC);
+        this.memory.putInt(4, CHECKPOINT_VERSION);
+        this.memory.putInt(8, this.n);
+        this.memory.putInt(PERCOLATES_OFFSET, this.percolates ? 1 : 0);
+        this.memory.putLong(OPEN_SITES_OFFSET, this.openSites);
+        this.memory.putLong(DIRTY_OFFSET, 0);
+        this.memory.force();
+        this.dirty = false;
+    }
+
+    public void open(int row, int col) {
+        this.assertCoordinatesValid(row, col);
+
+        long idx = this.toSingleIndex(row, col);
+        if ((this.getState(idx) & OPEN) != 0) {
+            return;
+        }
+        if (!this.dirty) {
+            this.memory.putLong(DIRTY_OFFSET, 1);
+            this.memory.force();
+            this.dirty = true;
+        }
+        this.setState(idx, this.siteFlags(row));
+
+        if (row > 1) {
+            this.unionIfOpen(idx, idx - this.n);
+        }
+        if (row < this.n) {
+            this.unionIfOpen(idx, idx + this.n);
+        }
+        if (col > 1) {
+            this.unionIfOpen(idx, idx - 1);
+        }
+        if (col < this.n) {
+            this.unionIfOpen(idx, idx + 1);
+        }
+
+        int rootFlags = this.getState(this.find(idx));
+        if ((rootFlags & TOUCHES_TOP) != 0 && (rootFlags & TOUCHES_BOTTOM) != 0) {
+            this.percolates = true;
+        }
+        this.openSites++;
+    }
+
+    public boolean isOpen(int row, int col) {
+        this.assertCoordinatesValid(row, col);
+        return (this.getState(this.toSingleIndex(row, col)) & OPEN) != 0;
+    }
+
+    public boolean isFull(int row, int col) {
+        this.assertCoordinatesValid(row, col);
+        long idx = this.toSingleIndex(row, col);
+        if ((this.getState(idx) & OPEN) == 0) {
+            return false;
+        }
+        return (this.getState(this.find(idx)) & TOUCHES_TOP) != 0;
+    }
+
+    public long numberOfOpenSites() {
+        return this.openSites;
+    }
+
+    public boolean percolates() {
+        return this.percolates;
+    }
+
+    @Override
+    public void close() {
+        try {
+            this.memory.close();
+            if (this.temporaryFile != null) {
+                Files.deleteIfExists(this.temporaryFile);
+            }
+        } catch (IOException exc) {
+            throw new UncheckedIOException(exc);
+        }
+    }
+
+    // rebuilds the union-find links, the roots' flags and both counters from the open sites
+    private void recover() {
+        long sites = (long) this.n * this.n;
+        for (long idx = 0; idx < sites; ++idx) {
+            if ((this.getState(idx) & OPEN) == 0) {
+                continue;
+            }
+            if ((idx + 1) % this.n != 0) {
+                this.unionIfOpen(idx, idx + 1);
+            }
+            if (idx + this.n < sites) {
+                this.unionIfOpen(idx, idx + this.n);
+            }
+        }
+
+        long openSites = 0;
+        boolean percolates = false;
+        for (long idx = 0; idx < sites; ++idx) {
+            if ((this.getState(idx) & OPEN) == 0) {
+                continue;
+            }
+            openSites++;
+            long root = this.find(idx);
+            int rootFlags = this.getState(root) | this.siteFlags((int) (idx / this.n) + 1);
+            this.setState(root, rootFlags);
+            if ((rootFlags & TOUCHES_TOP) != 0 && (rootFlags & TOUCHES_BOTTOM) != 0) {
+                percolates = true;
+            }
+        }
+        this.openSites = openSites;
+        this.percolates = percolates;
+    }
+
+    private int siteFlags(int row) {
+        int flags = OPEN;
+        if (row == 1) {
+            flags |= TOUCHES_TOP;
+        }
+        if (row == this.n) {
+            flags |= TOUCHES_BOTTOM;
+        }
+        return flags;
+    }
+
+    private void unionIfOpen(long idx, long neighborIdx) {
+        if ((this.getState(neighborIdx) & OPEN) == 0) {
+            return;
+        }
+        long r1 = this.find(idx);
+        long r2 = this.find(neighborIdx);
+        if (r1 == r2) {
+            return;
+        }
+
+        int rank1 = this.memory.getByte(this.rankOffset + r1);
+        int rank2 = this.memory.getByte(this.rankOffset + r2);
+        int mergedFlags = this.getState(r1) | this.getState(r2);
+        if (rank1 < rank2) {
+            this.setParent(r1, r2);
+            this.setState(r2, mergedFlags);
+        } else {
+            this.setParent(r2, r1);
+            this.setState(r1, mergedFlags);
+            if (rank1 == rank2) {
+                this.memory.putByte(this.rankOffset + r1, (byte) (rank1 + 1));
+            }
+        }
+    }
+
+    private long find(long idx) {
+        long e = idx;
+        long parent = this.getParent(e);
+        while (e != parent) {
+            long grandparent = this.getParent(parent);
+            this.setParent(e, grandparent);  // path halving
+            e = grandparent;
+            parent = this.getParent(e);
+        }
+        return e;
+    }
+
+    private long getParent(long idx) {
+        long stored = this.memory.getLong(this.parentOffset + idx * Long.BYTES);
+        return stored == 0 ? idx : stored - 1;
+    }
+
+    private void setParent(long idx, long parent) {
+        this.memory.putLong(this.parentOffset + idx * Long.BYTES, parent == idx ? 0 : parent + 1);
+    }
+
+    private int getState(long idx) {
+        return this.memory.getByte(this.stateOffset + idx);
+    }
+
+    private void setState(long idx, int state) {
+        this.memory.putByte(this.stateOffset + idx, (byte) state);
+    }
+
+    private long toSingleIndex(int row, int col) {
+        return (long) (row - 1) * this.n + (col - 1);
+    }
+
+    private void assertCoordinatesValid(int row, int col) {
+        if (row < 1 || col < 1 || row > this.n || col > this.n) {
+            throw new IllegalArgumentException(String.format("row and col required to be in range [1, n], got row = %d, col = %d", row, col));
+        }
+    }
+
+    private static Path createTemporaryFile() {
+        try {
+            Path file = Files.createTempFile("percolation", ".bin");
+            file.toFile().deleteOnExit();
+            return file;
+        } catch (IOException exc) {
+            throw new UncheckedIOException(exc);
+        }
+    }
+}
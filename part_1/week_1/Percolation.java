@@ -1,66 +1,196 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
 public class Percolation {
+    /*
+    A site is open iff its entry in openedInGeneration equals the current generation, so reset() only has to bump the
+    generation instead of clearing the grid. A site is made a singleton in both union-finds when it is opened: paths
+    only ever run through open sites and the two virtual sites, so stale parents of closed sites are never read.
+
+    Union-find instrumentation is switched on with -Dunionfind.instrumentation=true, see UnionFind.
+     */
+    private static final boolean INSTRUMENTED = UnionFind.INSTRUMENTED;
+
+    /*
+    Checkpoint format, little endian: a 16 byte header [magic][version][n][open sites], then for both union-finds
+    the parent and weight arrays as raw ints, then the open sites as a bitset of longs (site i being bit i % 64 of
+    word i / 64). Version 1 checkpoints carry no weights. Arrays move through direct buffers in bulk view-buffer
+    transfers rather than element by element.
+     */
+    private static final int CHECKPOINT_MAGIC = 0x50455243;  // "PERC"
+    private static final int CHECKPOINT_VERSION = 2;
+    private static final int CHECKPOINT_CHUNK_BYTES = 1 << 20;
+    private static final int MAX_CHECKPOINT_N = 46340;  // the largest n with n * n + 2 in int range
+    private static final int OPEN_ALL_WINDOW_BYTES = 1 << 30;
 
-    private final boolean[] isOpen;
-    private final int[] connections;
-    private final int[] connectionsIgnoreVirtualLast;
+    private final int[] openedInGeneration;
+    private final UnionFind connections;
+    private final UnionFind connectionsIgnoreVirtualLast;
+    private final int virtualLast;
+    private int generation;
     private int openSites;
     private final int n;
+    private final UnionFindStats stats;
 
     public Percolation(int n) {
         if (n < 1) {
             throw new IllegalArgumentException(String.format("n required to be positive, got %d", n));
         }
         this.n = n;
-        this.isOpen = new boolean[n * n + 2];  // n x n grid + 2 virtual sites
-        for (int i = 1; i < 1 + n * n; ++i) {
-            this.isOpen[i] = false;
-        }
-        this.connections = new int[n * n + 2];
-        this.connectionsIgnoreVirtualLast = new int[n * n + 2];
-        for (int i = 0; i < this.connections.length; ++i) {
-            this.connections[i] = i;
-            this.connectionsIgnoreVirtualLast[i] = i;
+        this.openedInGeneration = new int[n * n + 2];  // n x n grid + 2 virtual sites
+        this.stats = INSTRUMENTED ? new UnionFindStats() : null;
+        this.connections = new UnionFind(n * n + 2, UnionFind.Linking.SIZE, UnionFind.Compression.HALVING, this.stats);
+        this.connectionsIgnoreVirtualLast = new UnionFind(n * n + 2, UnionFind.Linking.SIZE, UnionFind.Compression.HALVING, this.stats);
+        this.virtualLast = n * n + 1;
+        this.generation = 1;
+        this.openSites = 0;
+    }
+
+    // closes all sites in O(1), the grid is only swept once every 2^31 - 1 resets when the generation wraps around
+    public void reset() {
+        if (this.generation == Integer.MAX_VALUE) {
+            for (int i = 0; i < this.openedInGeneration.length; ++i) {
+                this.openedInGeneration[i] = 0;
+            }
+            this.generation = 0;
         }
+        this.generation++;
+        this.resetVirtualSites();
         this.openSites = 0;
     }
 
     public void open(int row, int col) {
         this.assertCoordinatesValid(row, col);
+        this.openUnchecked(row, col, this.toSingleIndex(row, col));
+    }
 
-        if (this.isOpen(row, col)) {
-            return;
+    /*
+    Opens the sites in order, sites being 0-based row-major indices (row - 1) * n + (col - 1). The whole batch is
+    validated before anything is opened. Returns the position in the batch of the site whose opening first made the
+    grid percolate, or -1 if the grid did not start percolating during this batch.
+     */
+    public int openAll(int[] sites) {
+        if (sites == null) {
+            throw new IllegalArgumentException("Null sites passed to openAll");
+        }
+        int siteCount = this.n * this.n;
+        for (int site : sites) {
+            if (site < 0 || site >= siteCount) {
+                throw new IllegalArgumentException(String.format("sites required to be in range [0, %d), got %d", siteCount, site));
+            }
         }
 
-        int idx = this.toSingleIndex(row, col);
-        this.isOpen[idx] = true;
+        int percolatedAt = -1;
+        boolean percolates = this.percolates();
+        for (int i = 0; i < sites.length; ++i) {
+            int site = sites[i];
+            this.openUnchecked(site / this.n + 1, site % this.n + 1, site + 1);
+            if (!percolates && this.percolates()) {
+                percolates = true;
+                percolatedAt = i;
+            }
+        }
+        return percolatedAt;
+    }
 
-        for (int[] neighbor : this.getNeighbors(row, col)) {
-            if (neighbor == null) {
-                continue;
+    /*
+    Like openAll(int[]), reading the sites as little-endian ints from a file that is memory-mapped in windows of up
+    to 1 GiB, so traces beyond 2^31 steps can be replayed; the returned position is a long accordingly. Entries are
+    validated as they are read, an invalid one aborts the replay with the preceding sites already opened.
+     */
+    public long openAll(Path file) throws IOException {
+        int siteCount = this.n * this.n;
+        long percolatedAt = -1;
+        boolean percolates = this.percolates();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size % Integer.BYTES != 0) {
+                throw new IllegalArgumentException(String.format("File size required to be a multiple of %d, got %d", Integer.BYTES, size));
             }
-            int neighRow = neighbor[0];
-            int neighCol = neighbor[1];
-            if (isOpen(neighRow, neighCol)) {
-                int nIdx = this.toSingleIndex(neighRow, neighCol);
-                this.connect(idx, nIdx, this.connections);
-                this.connect(idx, nIdx, this.connectionsIgnoreVirtualLast);
+            long step = 0;
+            for (long position = 0; position < size; position += OPEN_ALL_WINDOW_BYTES) {
+                long length = Math.min(OPEN_ALL_WINDOW_BYTES, size - position);
+                IntBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+                while (window.hasRemaining()) {
+                    int site = window.get();
+                    if (site < 0 || site >= siteCount) {
+                        throw new IllegalArgumentException(String.format("sites required to be in range [0, %d), got %d at step %d", siteCount, site, step));
+                    }
+                    this.openUnchecked(site / this.n + 1, site % this.n + 1, site + 1);
+                    if (!percolates && this.percolates()) {
+                        percolates = true;
+                        percolatedAt = step;
+                    }
+                    step++;
+                }
             }
         }
+        return percolatedAt;
+    }
+
+    private void openUnchecked(int row, int col, int idx) {
+        if (this.openedInGeneration[idx] == this.generation) {
+            return;
+        }
+        this.openedInGeneration[idx] = this.generation;
+        this.connections.makeSet(idx);
+        this.connectionsIgnoreVirtualLast.makeSet(idx);
+
+        PercolationOpenEvent event = null;
+        long findsBefore = 0;
+        long unionsBefore = 0;
+        long compressionStepsBefore = 0;
+        if (INSTRUMENTED) {
+            event = new PercolationOpenEvent();
+            event.begin();
+            this.stats.beginOperation();
+            findsBefore = this.stats.finds();
+            unionsBefore = this.stats.unions();
+            compressionStepsBefore = this.stats.compressionSteps();
+        }
 
-        // potentially connect with virtual sites
-        if (row == 1) {
-            this.connect(0, idx, this.connections);
-            this.connect(0, idx, this.connectionsIgnoreVirtualLast);
+        // coordinates are validated once above, neighbors only need to be checked against the grid edges
+        if (row > 1) {
+            this.connectIfOpen(idx, idx - this.n);
+        } else {
+            this.connections.unionUnchecked(0, idx);
+            this.connectionsIgnoreVirtualLast.unionUnchecked(0, idx);
+        }
+        if (row < this.n) {
+            this.connectIfOpen(idx, idx + this.n);
+        } else {
+            this.connections.unionUnchecked(this.virtualLast, idx);
+        }
+        if (col > 1) {
+            this.connectIfOpen(idx, idx - 1);
         }
-        if (row == this.n) {
-            this.connect(this.connections.length - 1, idx, this.connections);
+        if (col < this.n) {
+            this.connectIfOpen(idx, idx + 1);
         }
         this.openSites++;
+
+        if (INSTRUMENTED && event.shouldCommit()) {
+            event.row = row;
+            event.col = col;
+            event.finds = this.stats.finds() - findsBefore;
+            event.unions = this.stats.unions() - unionsBefore;
+            event.compressionSteps = this.stats.compressionSteps() - compressionStepsBefore;
+            event.maxFindDepth = this.stats.operationMaxFindDepth();
+            event.commit();
+        }
     }
 
     public boolean isOpen(int row, int col) {
         this.assertCoordinatesValid(row, col);
-        return this.isOpen[this.toSingleIndex(row, col)];
+        return this.openedInGeneration[this.toSingleIndex(row, col)] == this.generation;
     }
 
     public boolean isFull(int row, int col) {
@@ -69,7 +199,7 @@ public class Percolation {
             return false;
         }
         int idx = this.toSingleIndex(row, col);
-        return this.hasSameRoot(0, idx, this.connectionsIgnoreVirtualLast);
+        return this.connectionsIgnoreVirtualLast.findUnchecked(0) == this.connectionsIgnoreVirtualLast.findUnchecked(idx);
     }
 
     public int numberOfOpenSites() {
@@ -77,67 +207,216 @@ public class Percolation {
     }
 
     public boolean percolates() {
-        return this.hasSameRoot(0, this.connections.length - 1, this.connections);
+        return this.connections.findUnchecked(0) == this.connections.findUnchecked(this.virtualLast);
+    }
+
+    // null unless instrumentation is enabled, see the class comment
+    public UnionFindStats unionFindStats() {
+        return this.stats;
     }
 
-    private int[][] getNeighbors(int row, int col) {
-        int[][] result = new int[4][];  // explicitly told only to use java.lang and edu.princeton.cs.algs4 so no extendable lists I guess?
-        if (this.existsEntry(row - 1, col)) {
-            result[0] = new int[] {row - 1, col};
+    /*
+    Writes the state of all sites as bitsets, site (row, col) being bit (row - 1) * n + (col - 1), i.e. bit i % 64 of
+    word i / 64. Sites are visited in index order and every find compresses its path, so the whole snapshot costs
+    close to O(n^2). The arrays are expected to hold the previous snapshot (or zeros): sites whose open or full bit
+    changes are reported in changedSites as 0-based indices, as far as it has room, and their total count is returned.
+     */
+    public int snapshot(long[] full, long[] open, int[] changedSites) {
+        int sites = this.n * this.n;
+        int words = (sites + 63) >>> 6;
+        if (full == null || open == null || full.length < words || open.length < words) {
+            throw new IllegalArgumentException(String.format("full and open required to have at least %d words", words));
+        }
+
+        int topRoot = this.connectionsIgnoreVirtualLast.findUnchecked(0);
+        int changed = 0;
+        for (int word = 0; word < words; ++word) {
+            long openBits = 0;
+            long fullBits = 0;
+            int first = word << 6;
+            int last = Math.min(first + 64, sites);
+            for (int site = first; site < last; ++site) {
+                int idx = site + 1;
+                if (this.openedInGeneration[idx] != this.generation) {
+                    continue;
+                }
+                long bit = 1L << (site & 63);
+                openBits |= bit;
+                if (this.connectionsIgnoreVirtualLast.findUnchecked(idx) == topRoot) {
+                    fullBits |= bit;
+                }
+            }
+
+            long diff = (open[word] ^ openBits) | (full[word] ^ fullBits);
+            while (diff != 0) {
+                if (changedSites != null && changed < changedSites.length) {
+                    changedSites[changed] = first + Long.numberOfTrailingZeros(diff);
+                }
+                changed++;
+                diff &= diff - 1;
+            }
+            open[word] = openBits;
+            full[word] = fullBits;
         }
-        if (this.existsEntry(row + 1, col)) {
-            result[1] = new int[] {row + 1, col};
+        return changed;
+    }
+
+    public void checkpoint(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            this.checkpoint(channel);
+            channel.force(false);
         }
-        if (this.existsEntry(row, col - 1)) {
-            result[2] = new int[] {row, col - 1};
+    }
+
+    public void checkpoint(WritableByteChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(CHECKPOINT_CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(CHECKPOINT_MAGIC).putInt(CHECKPOINT_VERSION).putInt(this.n).putInt(this.openSites);
+        Percolation.writeInts(channel, buffer, this.connections.parents());
+        Percolation.writeInts(channel, buffer, this.connections.weights());
+        Percolation.writeInts(channel, buffer, this.connectionsIgnoreVirtualLast.parents());
+        Percolation.writeInts(channel, buffer, this.connectionsIgnoreVirtualLast.weights());
+
+        int sites = this.n * this.n;
+        for (int first = 0; first < sites; first += 64) {
+            long word = 0;
+            int last = Math.min(first + 64, sites);
+            for (int site = first; site < last; ++site) {
+                if (this.openedInGeneration[site + 1] == this.generation) {
+                    word |= 1L << (site & 63);
+                }
+            }
+            if (buffer.remaining() < Long.BYTES) {
+                Percolation.flush(channel, buffer);
+            }
+            buffer.putLong(word);
         }
-        if (this.existsEntry(row, col + 1)) {
-            result[3] = new int[] {row, col + 1};
+        Percolation.flush(channel, buffer);
+    }
+
+    public static Percolation restore(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return Percolation.restore(channel, channel.size());
         }
-        return result;
     }
 
-    private boolean existsEntry(int row, int col) {
-        return row >= 1 && row <= this.n && col >= 1 && col <= this.n;
+    public static Percolation restore(ReadableByteChannel channel) throws IOException {
+        return Percolation.restore(channel, -1);
     }
 
-    private void connect(int i1, int i2, int[] arr) {
-        int e1 = i1;
-        int c1 = 0;
+    // checkpointBytes is the length of the whole checkpoint if known (a file), -1 otherwise
+    private static Percolation restore(ReadableByteChannel channel, long checkpointBytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(CHECKPOINT_CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.flip();
+        Percolation.fill(channel, buffer, 4 * Integer.BYTES);
+        int magic = buffer.getInt();
+        int version = buffer.getInt();
+        if (magic != CHECKPOINT_MAGIC) {
+            throw new IllegalArgumentException(String.format("Not a Percolation checkpoint, got magic %08x", magic));
+        }
+        if (version != 1 && version != CHECKPOINT_VERSION) {
+            throw new IllegalArgumentException(String.format("Unsupported checkpoint version %d, expected 1 to %d", version, CHECKPOINT_VERSION));
+        }
+        int n = buffer.getInt();
+        int openSites = buffer.getInt();
+        if (n < 1 || n > MAX_CHECKPOINT_N) {
+            throw new IllegalArgumentException(String.format("Corrupt checkpoint, n required to be in range [1, %d], got %d", MAX_CHECKPOINT_N, n));
+        }
+        if (checkpointBytes >= 0 && checkpointBytes != Percolation.checkpointBytes(n, version)) {
+            throw new IllegalArgumentException(String.format("Corrupt checkpoint, n = %d and version %d imply %d bytes, got %d", n, version, Percolation.checkpointBytes(n, version), checkpointBytes));
+        }
+
+        Percolation percolation = new Percolation(n);
+        Percolation.readInts(channel, buffer, percolation.connections.parents());
+        if (version > 1) {
+            Percolation.readInts(channel, buffer, percolation.connections.weights());
+        }
+        Percolation.readInts(channel, buffer, percolation.connectionsIgnoreVirtualLast.parents());
+        if (version > 1) {
+            Percolation.readInts(channel, buffer, percolation.connectionsIgnoreVirtualLast.weights());
+        }
+
+        int sites = n * n;
+        int openCount = 0;
+        for (int first = 0; first < sites; first += 64) {
+            Percolation.fill(channel, buffer, Long.BYTES);
+            long word = buffer.getLong();
+            openCount += Long.bitCount(word);
+            while (word != 0) {
+                percolation.openedInGeneration[first + Long.numberOfTrailingZeros(word) + 1] = percolation.generation;
+                word &= word - 1;
+            }
+        }
+        if (openCount != openSites) {
+            throw new IllegalArgumentException(String.format("Corrupt checkpoint, header claims %d open sites but %d are stored", openSites, openCount));
+        }
+        percolation.openSites = openSites;
+        return percolation;
+    }
 
-        int e2 = i2;
-        int c2 = 0;
+    private static long checkpointBytes(int n, int version) {
+        long sites = (long) n * n;
+        int arrays = version > 1 ? 4 : 2;
+        return 4 * Integer.BYTES + arrays * (sites + 2) * Integer.BYTES + (sites + 63) / 64 * Long.BYTES;
+    }
 
-        while (e1 != arr[e1]) {
-            c1++;
-            int tmp = e1;
-            e1 = arr[e1];
-            arr[tmp] = arr[e1];
+    private static void writeInts(WritableByteChannel channel, ByteBuffer buffer, int[] values) throws IOException {
+        int offset = 0;
+        while (offset < values.length) {
+            if (buffer.remaining() < Integer.BYTES) {
+                Percolation.flush(channel, buffer);
+            }
+            int count = Math.min(buffer.remaining() / Integer.BYTES, values.length - offset);
+            buffer.asIntBuffer().put(values, offset, count);
+            buffer.position(buffer.position() + count * Integer.BYTES);
+            offset += count;
         }
+    }
 
-        while (e2 != arr[e2]) {
-            c2++;
-            int tmp = e2;
-            e2 = arr[e2];
-            arr[tmp] = arr[e2];
+    private static void flush(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
         }
+        buffer.clear();
+    }
 
-        if (c1 > c2) {
-            arr[e2] = e1;
-        } else {
-            arr[e1] = e2;
+    private static void readInts(ReadableByteChannel channel, ByteBuffer buffer, int[] values) throws IOException {
+        int offset = 0;
+        while (offset < values.length) {
+            Percolation.fill(channel, buffer, Integer.BYTES);
+            int count = Math.min(buffer.remaining() / Integer.BYTES, values.length - offset);
+            buffer.asIntBuffer().get(values, offset, count);
+            buffer.position(buffer.position() + count * Integer.BYTES);
+            offset += count;
         }
     }
 
-    private boolean hasSameRoot(int i1, int i2, int[] arr) {
-        int e1 = i1;
-        int e2 = i2;
+    // makes sure that at least `bytes` bytes are available in the buffer, which is kept in read mode
+    private static void fill(ReadableByteChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+        buffer.compact();
+        while (buffer.position() < bytes) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Checkpoint truncated");
+            }
+        }
+        buffer.flip();
+    }
 
-        while (arr[e1] != e1 || arr[e2] != e2) {
-            e1 = arr[e1];
-            e2 = arr[e2];
+    private void connectIfOpen(int idx, int neighborIdx) {
+        if (this.openedInGeneration[neighborIdx] == this.generation) {
+            this.connections.unionUnchecked(idx, neighborIdx);
+            this.connectionsIgnoreVirtualLast.unionUnchecked(idx, neighborIdx);
         }
-        return e1 == e2;
+    }
+
+    private void resetVirtualSites() {
+        this.connections.makeSet(0);
+        this.connections.makeSet(this.virtualLast);
+        this.connectionsIgnoreVirtualLast.makeSet(0);
+        this.connectionsIgnoreVirtualLast.makeSet(this.virtualLast);
     }
 
     private int toSingleIndex(int row, int col) {
@@ -0,0 +1,186 @@
+import java.lang.management.ManagementFactory;
+import java.util.SplittableRandom;
+
+public class PercolationBenchmark {
+
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int MEASURED_ROUNDS = 10;
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        PercolationBenchmark.benchmarkOpenAllocations(n);
+        PercolationBenchmark.benchmarkSingleUnionFind(n);
+        PercolationBenchmark.benchmarkConcurrentOpen(n);
+        PercolationBenchmark.printUnionFindStats(n);
+        PercolationBenchmark.benchmarkUnionFindStrategies(n * n);
+    }
+
+    private static void benchmarkOpenAllocations(int n) {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threadBean.isThreadAllocatedMemorySupported()) {
+            System.out.println("Thread allocation accounting not supported by this JVM");
+            return;
+        }
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        // the whole opening sequence is generated upfront so that only open() runs inside the measured region
+        int sites = n * n;
+        int[] rows = PercolationBenchmark.randomCoordinates(n, sites, 42);
+        int[] cols = PercolationBenchmark.randomCoordinates(n, sites, 43);
+
+        for (int round = 0; round < WARMUP_ROUNDS; ++round) {
+            PercolationBenchmark.openAll(new Percolation(n), rows, cols);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long totalBytes = 0;
+        long totalNanos = 0;
+        for (int round = 0; round < MEASURED_ROUNDS; ++round) {
+            Percolation percolation = new Percolation(n);
+            long bytesBefore = threadBean.getThreadAllocatedBytes(threadId);
+            long nanosBefore = System.nanoTime();
+            PercolationBenchmark.openAll(percolation, rows, cols);
+            totalNanos += System.nanoTime() - nanosBefore;
+            totalBytes += threadBean.getThreadAllocatedBytes(threadId) - bytesBefore;
+        }
+
+        long opens = (long) MEASURED_ROUNDS * sites;
+        System.out.printf("n = %d, open() calls measured = %d\n", n, opens);
+        System.out.printf("allocated bytes per open()   = %f\n", (double) totalBytes / opens);
+        System.out.printf("nanoseconds per open()       = %f\n", (double) totalNanos / opens);
+    }
+
+    private static void benchmarkSingleUnionFind(int n) {
+        int[] rows = PercolationBenchmark.randomCoordinates(n, n * n, 42);
+        int[] cols = PercolationBenchmark.randomCoordinates(n, n * n, 43);
+
+        for (int round = 0; round < WARMUP_ROUNDS; ++round) {
+            PercolationBenchmark.openUntilPercolates(new Percolation(n), rows, cols);
+            PercolationBenchmark.openUntilPercolates(new SingleUnionFindPercolation(n), rows, cols);
+        }
+
+        long twinNanos = 0;
+        long singleNanos = 0;
+        for (int round = 0; round < MEASURED_ROUNDS; ++round) {
+            long nanosBefore = System.nanoTime();
+            PercolationBenchmark.openUntilPercolates(new Percolation(n), rows, cols);
+            twinNanos += System.nanoTime() - nanosBefore;
+
+            nanosBefore = System.nanoTime();
+            PercolationBenchmark.openUntilPercolates(new SingleUnionFindPercolation(n), rows, cols);
+            singleNanos += System.nanoTime() - nanosBefore;
+        }
+
+        System.out.printf("ms per trial, Percolation                = %f\n", twinNanos / 1e6 / MEASURED_ROUNDS);
+        System.out.printf("ms per trial, SingleUnionFindPercolation = %f\n", singleNanos / 1e6 / MEASURED_ROUNDS);
+    }
+
+    private static void benchmarkConcurrentOpen(int n) {
+        int sites = n * n;
+        int[] rows = PercolationBenchmark.randomCoordinates(n, sites, 42);
+        int[] cols = PercolationBenchmark.randomCoordinates(n, sites, 43);
+
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            for (int round = 0; round < WARMUP_ROUNDS / 4; ++round) {
+                PercolationBenchmark.openConcurrently(new ConcurrentPercolation(n), rows, cols, threads);
+            }
+            long totalNanos = 0;
+            for (int round = 0; round < MEASURED_ROUNDS; ++round) {
+                ConcurrentPercolation percolation = new ConcurrentPercolation(n);
+                long nanosBefore = System.nanoTime();
+                PercolationBenchmark.openConcurrently(percolation, rows, cols, threads);
+                totalNanos += System.nanoTime() - nanosBefore;
+            }
+            double opensPerSecond = (double) MEASURED_ROUNDS * sites / (totalNanos / 1e9);
+            System.out.printf("ConcurrentPercolation, %d threads: %f million open() per second\n", threads, opensPerSecond / 1e6);
+        }
+    }
+
+    // random edges over all elements, the same edge set for every strategy
+    private static void benchmarkUnionFindStrategies(int elements) {
+        int[] edges = new int[4 * elements];
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < edges.length; ++i) {
+            edges[i] = random.nextInt(elements);
+        }
+
+        for (UnionFind.Linking linking : UnionFind.Linking.values()) {
+            for (UnionFind.Compression compression : UnionFind.Compression.values()) {
+                for (int round = 0; round < WARMUP_ROUNDS / 4; ++round) {
+                    new UnionFind(elements, linking, compression).union(edges);
+                }
+                long totalNanos = 0;
+                for (int round = 0; round < MEASURED_ROUNDS; ++round) {
+                    UnionFind unionFind = new UnionFind(elements, linking, compression);
+                    long nanosBefore = System.nanoTime();
+                    unionFind.union(edges);
+                    totalNanos += System.nanoTime() - nanosBefore;
+                }
+                System.out.printf("UnionFind %s/%s: %f ns per union\n", linking, compression, (double) totalNanos / MEASURED_ROUNDS / (edges.length / 2));
+            }
+        }
+    }
+
+    // only prints something when run with -Dunionfind.instrumentation=true
+    private static void printUnionFindStats(int n) {
+        Percolation percolation = new Percolation(n);
+        if (percolation.unionFindStats() == null) {
+            return;
+        }
+        int[] rows = PercolationBenchmark.randomCoordinates(n, n * n, 42);
+        int[] cols = PercolationBenchmark.randomCoordinates(n, n * n, 43);
+        PercolationBenchmark.openUntilPercolates(percolation, rows, cols);
+        System.out.println(percolation.unionFindStats());
+    }
+
+    // every thread opens a contiguous slice of the sequence, so the slices jointly open the same sites for any thread count
+    private static void openConcurrently(ConcurrentPercolation percolation, int[] rows, int[] cols, int threads) {
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; ++t) {
+            int lo = (int) ((long) rows.length * t / threads);
+            int hi = (int) ((long) rows.length * (t + 1) / threads);
+            workers[t] = new Thread(() -> {
+                for (int i = lo; i < hi; ++i) {
+                    percolation.open(rows[i], cols[i]);
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException exc) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for benchmark threads", exc);
+            }
+        }
+    }
+
+    private static int[] randomCoordinates(int n, int count, long seed) {
+        int[] coordinates = new int[count];
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 0; i < count; ++i) {
+            coordinates[i] = random.nextInt(1, n + 1);
+        }
+        return coordinates;
+    }
+
+    private static void openUntilPercolates(Percolation percolation, int[] rows, int[] cols) {
+        for (int i = 0; i < rows.length && !percolation.percolates(); ++i) {
+            percolation.open(rows[i], cols[i]);
+        }
+    }
+
+    private static void openUntilPercolates(SingleUnionFindPercolation percolation, int[] rows, int[] cols) {
+        for (int i = 0; i < rows.length && !percolation.percolates(); ++i) {
+            percolation.open(rows[i], cols[i]);
+        }
+    }
+
+    private static void openAll(Percolation percolation, int[] rows, int[] cols) {
+        for (int i = 0; i < rows.length; ++i) {
+            percolation.open(rows[i], cols[i]);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+public class PercolationCurve {
+    /*
+    Percolation probability as a function of the number of open sites (the microcanonical ensemble of Newman and
+    Ziff), estimated from the number of open sites at which each trial first percolated: a grid with k open sites
+    percolates iff the trial's threshold count is at most k. The probability for a site vacancy probability p (the
+    canonical ensemble) follows by convolving with the binomial distribution of k.
+     */
+    private static final double NEGLIGIBLE_WEIGHT = 1e-15;
+
+    private final int sites;
+    private final int[] percolatedAt;
+    private int[] percolatedAtMost;
+    private int trials;
+
+    public PercolationCurve(int n) {
+        if (n < 1) {
+            throw new IllegalArgumentException(String.format("n required to be positive, got %d", n));
+        }
+        this.sites = n * n;
+        this.percolatedAt = new int[this.sites + 1];
+        this.percolatedAtMost = null;
+        this.trials = 0;
+    }
+
+    public PercolationCurve(int n, double[] thresholds) {
+        this(n);
+        if (thresholds == null) {
+            throw new IllegalArgumentException("Null thresholds passed to constructor");
+        }
+        for (double threshold : thresholds) {
+            this.add(threshold);
+        }
+    }
+
+    public void add(double threshold) {
+        if (threshold < 0 || threshold > 1) {
+            throw new IllegalArgumentException(String.format("threshold required to be in range [0, 1], got %f", threshold));
+        }
+        this.percolatedAt[(int) Math.round(threshold * this.sites)]++;
+        this.percolatedAtMost = null;
+        this.trials++;
+    }
+
+    public int sites() {
+        return this.sites;
+    }
+
+    public int trials() {
+        return this.trials;
+    }
+
+    public double percolationProbability(int openSites) {
+        if (openSites < 0 || openSites > this.sites) {
+            throw new IllegalArgumentException(String.format("openSites required to be in range [0, %d], got %d", this.sites, openSites));
+        }
+        if (this.trials == 0) {
+            throw new IllegalStateException("No trials added to the curve");
+        }
+        if (this.percolatedAtMost == null) {
+            this.percolatedAtMost = new int[this.sites + 1];
+            this.percolatedAtMost[0] = this.percolatedAt[0];
+            for (int k = 1; k <= this.sites; ++k) {
+                this.percolatedAtMost[k] = this.percolatedAtMost[k - 1] + this.percolatedAt[k];
+            }
+        }
+        return (double) this.percolatedAtMost[openSites] / this.trials;
+    }
+
+    public double percolationProbability(double p) {
+        if (p < 0 || p > 1) {
+            throw new IllegalArgumentException(String.format("p required to be in range [0, 1], got %f", p));
+        }
+        if (p == 0 || p == 1) {
+            return this.percolationProbability((int) p * this.sites);
+        }
+
+        // binomial weights are built outwards from the mode with the ratio B(k + 1) / B(k) and normalized at the end
+        int mode = (int) Math.round(p * this.sites);
+        double odds = p / (1 - p);
+        double weightedSum = this.percolationProbability(mode);
+        double weightSum = 1;
+
+        double weight = 1;
+        for (int k = mode; k < this.sites && weight > NEGLIGIBLE_WEIGHT; ++k) {
+            weight *= odds * (this.sites - k) / (k + 1);
+            weightedSum += weight * this.percolationProbability(k + 1);
+            weightSum += weight;
+        }
+        weight = 1;
+        for (int k = mode; k > 0 && weight > NEGLIGIBLE_WEIGHT; --k) {
+            weight *= k / (odds * (this.sites - k + 1));
+            weightedSum += weight * this.percolationProbability(k - 1);
+            weightSum += weight;
+        }
+        return weightedSum / weightSum;
+    }
+}
@@ -0,0 +1,30 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("percolation.Open")
+@Label("Percolation Open")
+@Category("Percolation")
+@Description("Union-find work performed by a single Percolation.open call")
+public class PercolationOpenEvent extends Event {
+
+    @Label("Row")
+    int row;
+
+    @Label("Column")
+    int col;
+
+    @Label("Finds")
+    long finds;
+
+    @Label("Unions")
+    long unions;
+
+    @Label("Compression Steps")
+    long compressionSteps;
+
+    @Label("Max Find Depth")
+    int maxFindDepth;
+}
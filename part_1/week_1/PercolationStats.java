@@ -1,59 +1,176 @@
-import edu.princeton.cs.algs4.StdRandom;
-import edu.princeton.cs.algs4.StdStats;
+import java.util.concurrent.ForkJoinPool;
 
 public class PercolationStats {
 
+    public interface ProgressListener {
+        void onProgress(int trials, double mean, double confidenceLo, double confidenceHi);
+    }
+
     private static final double CONFIDENCE_95 = 1.96;
+    private static final int BATCH_SIZE = 64;
 
-    private final int trials;
-    private final double[] results;
+    private final RunningStatistics statistics;
+    private final PercolationCurve curve;  // null unless requested, it takes O(n^2) memory
 
     public PercolationStats(int n, int trials) {
-        if (n < 1) {
-            throw new IllegalArgumentException(String.format("n required to be positive, got %d", n));
-        }
-        if (trials < 1) {
-            throw new IllegalArgumentException(String.format("trials required to be positive, got %d", trials));
-        }
+        PercolationStats.assertArgumentsValid(n, trials);
 
-        this.trials = trials;
-        this.results = new double[trials];
+        RandomSource random = RandomSource.stdRandom();
+        this.statistics = new RunningStatistics();
+        this.curve = null;
+        Percolation percolation = new Percolation(n);
         for (int trial = 0; trial < trials; ++trial) {
-            Percolation percolation = new Percolation(n);
+            percolation.reset();
             while (!percolation.percolates()) {
-                int randRow = StdRandom.uniform(1, n + 1);
-                int randCol = StdRandom.uniform(1, n + 1);
+                int randRow = 1 + random.uniform(n);
+                int randCol = 1 + random.uniform(n);
                 percolation.open(randRow, randCol);
             }
-            results[trial] = (1.0 / (n * n)) * percolation.numberOfOpenSites();
+            this.record((1.0 / (n * n)) * percolation.numberOfOpenSites());
+        }
+    }
+
+    // deterministic for a given seed, regardless of the parallelism of the pool
+    public PercolationStats(int n, int trials, long seed) {
+        this(n, trials, seed, ForkJoinPool.commonPool());
+    }
+
+    public PercolationStats(int n, int trials, long seed, ForkJoinPool pool) {
+        this(new PercolationTrialRunner(n, seed, pool, PercolationTrialRunner.Mode.RANDOM_SITES), trials);
+    }
+
+    // runs on the common pool, deterministic if the source is
+    public PercolationStats(int n, int trials, RandomSource random) {
+        this(new PercolationTrialRunner(n, random, ForkJoinPool.commonPool(), PercolationTrialRunner.Mode.RANDOM_SITES), trials);
+    }
+
+    public PercolationStats(PercolationTrialRunner runner, int trials) {
+        if (runner == null) {
+            throw new IllegalArgumentException("Null runner passed to constructor");
+        }
+        PercolationStats.assertArgumentsValid(runner.n(), trials);
+
+        this.statistics = new RunningStatistics();
+        this.curve = null;
+        for (double threshold : runner.run(trials)) {
+            this.record(threshold);
+        }
+    }
+
+    // runs until the 95% confidence interval is at most targetWidth wide or maxTrials trials were run, targetWidth 0 runs all maxTrials
+    public PercolationStats(PercolationTrialRunner runner, double targetWidth, int maxTrials, ProgressListener listener) {
+        this(runner, targetWidth, maxTrials, listener, false);
+    }
+
+    // recordCurve also collects the thresholds into a PercolationCurve, available through curve()
+    public PercolationStats(PercolationTrialRunner runner, double targetWidth, int maxTrials, ProgressListener listener, boolean recordCurve) {
+        if (runner == null) {
+            throw new IllegalArgumentException("Null runner passed to constructor");
         }
+        if (targetWidth < 0) {
+            throw new IllegalArgumentException(String.format("targetWidth required to be non-negative, got %f", targetWidth));
+        }
+        PercolationStats.assertArgumentsValid(runner.n(), maxTrials);
+
+        this.statistics = new RunningStatistics();
+        this.curve = recordCurve ? new PercolationCurve(runner.n()) : null;
+        runner.run(BATCH_SIZE, maxTrials, new PercolationTrialRunner.TrialObserver() {
+            @Override
+            public void onResult(double threshold) {
+                record(threshold);
+            }
+
+            @Override
+            public boolean onBatchCompleted(int trials) {
+                if (listener != null) {
+                    listener.onProgress(trials, mean(), confidenceLo(), confidenceHi());
+                }
+                return targetWidth == 0 || trials < 2 || confidenceHi() - confidenceLo() > targetWidth;
+            }
+        });
+    }
+
+    public int trials() {
+        return (int) this.statistics.count();
     }
 
     public double mean() {
-        return StdStats.mean(this.results);
+        return this.statistics.mean();
     }
 
     public double stddev() {
-        return StdStats.stddev(this.results);
+        return this.statistics.stddev();
     }
 
     public double confidenceLo() {
-        return this.mean() - (CONFIDENCE_95 * this.stddev()) / Math.sqrt(this.trials);
+        return this.mean() - (CONFIDENCE_95 * this.stddev()) / Math.sqrt(this.trials());
     }
 
     public double confidenceHi() {
-        return this.mean() + (CONFIDENCE_95 * this.stddev()) / Math.sqrt(this.trials);
+        return this.mean() + (CONFIDENCE_95 * this.stddev()) / Math.sqrt(this.trials());
+    }
+
+    // percolation probability vs. open sites / site vacancy probability, from the same trials
+    public PercolationCurve curve() {
+        if (this.curve == null) {
+            throw new IllegalStateException("Curve not recorded, construct with recordCurve = true");
+        }
+        return this.curve;
     }
 
     // test client (see below)
     public static void main(String[] args) {
         int n = Integer.parseInt(args[0]);
         int trials = Integer.parseInt(args[1]);
-        PercolationStats ps = new PercolationStats(n, trials);
+        ForkJoinPool pool = args.length > 3 ? new ForkJoinPool(Integer.parseInt(args[3])) : null;
+        PercolationStats ps;
+        try {
+            if (args.length > 5) {
+                long seed = Long.parseLong(args[2]);
+                PercolationTrialRunner.Mode mode = PercolationTrialRunner.Mode.valueOf(args[4]);
+                double targetWidth = Double.parseDouble(args[5]);
+                ps = new PercolationStats(
+                        new PercolationTrialRunner(n, seed, pool, mode),
+                        targetWidth,
+                        trials,
+                        (completed, mean, lo, hi) -> System.out.printf("%d trials, mean = %f, width = %f\n", completed, mean, hi - lo)
+                );
+            } else if (args.length > 4) {
+                long seed = Long.parseLong(args[2]);
+                PercolationTrialRunner.Mode mode = PercolationTrialRunner.Mode.valueOf(args[4]);
+                ps = new PercolationStats(new PercolationTrialRunner(n, seed, pool, mode), trials);
+            } else if (args.length > 3) {
+                ps = new PercolationStats(n, trials, Long.parseLong(args[2]), pool);
+            } else if (args.length > 2) {
+                ps = new PercolationStats(n, trials, Long.parseLong(args[2]));
+            } else {
+                ps = new PercolationStats(n, trials);
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
 
         System.out.printf("mean                     = %f\n", ps.mean());
         System.out.printf("stddev                   = %f\n", ps.stddev());
         System.out.printf("95%% confidence interval  = [%f, %f]", ps.confidenceLo(), ps.confidenceHi());
     }
 
+    private void record(double threshold) {
+        this.statistics.add(threshold);
+        if (this.curve != null) {
+            this.curve.add(threshold);
+        }
+    }
+
+    private static void assertArgumentsValid(int n, int trials) {
+        if (n < 1) {
+            throw new IllegalArgumentException(String.format("n required to be positive, got %d", n));
+        }
+        if (trials < 1) {
+            throw new IllegalArgumentException(String.format("trials required to be positive, got %d", trials));
+        }
+    }
+
 }
\ No newline at end of file
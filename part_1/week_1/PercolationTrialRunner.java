@@ -0,0 +1,234 @@
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class PercolationTrialRunner {
+
+    public interface TrialObserver {
+        void onResult(double threshold);
+
+        // called after every batch with the total number of completed trials, returning false ends the run
+        boolean onBatchCompleted(int trials);
+    }
+
+    public enum Mode {
+        // draws uniform (row, col) pairs, including ones that are already open
+        RANDOM_SITES,
+        // opens sites in the order of a random permutation, so every draw opens a new site (Newman-Ziff)
+        PERMUTATION
+    }
+
+    private final int n;
+    private final RandomSource random;
+    private final ForkJoinPool pool;
+    private final Mode mode;
+
+    public PercolationTrialRunner(int n, long seed) {
+        this(n, seed, ForkJoinPool.commonPool(), Mode.RANDOM_SITES);
+    }
+
+    public PercolationTrialRunner(int n, long seed, ForkJoinPool pool, Mode mode) {
+        this(n, RandomSource.splittable(seed), pool, mode);
+    }
+
+    // every run splits a fresh stream off the source, so a run is deterministic if the source is
+    public PercolationTrialRunner(int n, RandomSource random, ForkJoinPool pool, Mode mode) {
+        if (n < 1) {
+            throw new IllegalArgumentException(String.format("n required to be positive, got %d", n));
+        }
+        if (random == null) {
+            throw new IllegalArgumentException("Null random passed to constructor");
+        }
+        if (pool == null) {
+            throw new IllegalArgumentException("Null pool passed to constructor");
+        }
+        if (mode == null) {
+            throw new IllegalArgumentException("Null mode passed to constructor");
+        }
+        this.n = n;
+        this.random = random;
+        this.pool = pool;
+        this.mode = mode;
+    }
+
+    public int n() {
+        return this.n;
+    }
+
+    // runs the trials on the pool, result of trial i is always stored at index i
+    public double[] run(int trials) {
+        if (trials < 1) {
+            throw new IllegalArgumentException(String.format("trials required to be positive, got %d", trials));
+        }
+        double[] results = new double[trials];
+        this.pool.invoke(new TrialTask(results, 0, trials, this.random.split(), new ConcurrentLinkedQueue<>()));
+        return results;
+    }
+
+    /*
+    Runs at most maxTrials trials in batches of batchSize, passing results to the observer in trial order. Every
+    batch gets a fresh stream split off the run's master stream, so results are deterministic for a given source and
+    batch size. Several batches are in flight at once, enough to keep every pool thread busy while the observer looks
+    at the oldest one, so there is no barrier between batches; when the observer stops the run, the batches already
+    submitted are cancelled or their results dropped. Only those batches are held in memory.
+     */
+    public int run(int batchSize, int maxTrials, TrialObserver observer) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException(String.format("batchSize required to be positive, got %d", batchSize));
+        }
+        if (maxTrials < 1) {
+            throw new IllegalArgumentException(String.format("maxTrials required to be positive, got %d", maxTrials));
+        }
+        if (observer == null) {
+            throw new IllegalArgumentException("Null observer passed to run");
+        }
+        RandomSource master = this.random.split();
+        ConcurrentLinkedQueue<Workspace> workspaces = new ConcurrentLinkedQueue<>();
+        int inFlight = Math.max(2, 2 * this.pool.getParallelism() / batchSize + 1);
+        ArrayDeque<TrialTask> batches = new ArrayDeque<>();
+        int submitted = 0;
+        int completed = 0;
+        boolean proceed = true;
+        while (proceed && completed < maxTrials) {
+            while (batches.size() < inFlight && submitted < maxTrials) {
+                int batch = Math.min(batchSize, maxTrials - submitted);
+                TrialTask task = new TrialTask(new double[batch], 0, batch, master.split(), workspaces);
+                this.pool.execute(task);
+                batches.add(task);
+                submitted += batch;
+            }
+            TrialTask oldest = batches.poll();
+            oldest.join();
+            for (double result : oldest.results) {
+                observer.onResult(result);
+            }
+            completed += oldest.results.length;
+            proceed = observer.onBatchCompleted(completed);
+        }
+        for (TrialTask task : batches) {
+            task.cancel(false);
+        }
+        return completed;
+    }
+
+    /*
+    Workspaces are shared by all trials of one run() call: a trial takes an idle one and puts it back when done, so
+    a run allocates about as many as trials ran at once, and they are garbage as soon as the run returns rather than
+    staying attached to long-lived pool threads.
+     */
+    private double runTrial(RandomSource random, ConcurrentLinkedQueue<Workspace> workspaces) {
+        Workspace workspace = workspaces.poll();
+        if (workspace == null) {
+            workspace = new Workspace(this.n, this.mode);
+        }
+        workspace.reset();
+        if (this.mode == Mode.PERMUTATION) {
+            this.openInPermutationOrder(workspace, random);
+        } else {
+            this.openRandomSites(workspace.percolation, random);
+        }
+        double threshold = workspace.percolation.numberOfOpenSites() / ((double) this.n * this.n);
+        workspaces.offer(workspace);
+        return threshold;
+    }
+
+    private void openRandomSites(Percolation percolation, RandomSource random) {
+        while (!percolation.percolates()) {
+            int randRow = 1 + random.uniform(this.n);
+            int randCol = 1 + random.uniform(this.n);
+            percolation.open(randRow, randCol);
+        }
+    }
+
+    private void openInPermutationOrder(Workspace workspace, RandomSource random) {
+        int sites = this.n * this.n;
+        // Fisher-Yates shuffle performed one step per opened site, so it stops as soon as the grid percolates
+        for (int i = 0; !workspace.percolation.percolates(); ++i) {
+            int j = i + random.uniform(sites - i);
+            int site = workspace.orderAt(j);
+            workspace.setOrderAt(j, workspace.orderAt(i));
+            workspace.setOrderAt(i, site);
+            workspace.percolation.open(site / this.n + 1, site % this.n + 1);
+        }
+    }
+
+    private static class Workspace {
+        /*
+        State reused across the trials of a run. The permutation has to restart from the identity for every trial,
+        otherwise results would depend on which trials used the workspace before. Like Percolation, it is reset
+        lazily: an entry only holds a valid value if it was written in the current generation. RANDOM_SITES never
+        touches the permutation, so it is only allocated for PERMUTATION.
+         */
+        private final Percolation percolation;
+        private final int[] order;
+        private final int[] orderGeneration;
+        private int generation;
+
+        private Workspace(int n, Mode mode) {
+            this.percolation = new Percolation(n);
+            this.order = mode == Mode.PERMUTATION ? new int[n * n] : null;
+            this.orderGeneration = mode == Mode.PERMUTATION ? new int[n * n] : null;
+            this.generation = 0;
+        }
+
+        private void reset() {
+            this.percolation.reset();
+            if (this.orderGeneration == null) {
+                return;
+            }
+            if (this.generation == Integer.MAX_VALUE) {
+                for (int i = 0; i < this.orderGeneration.length; ++i) {
+                    this.orderGeneration[i] = 0;
+                }
+                this.generation = 0;
+            }
+            this.generation++;
+        }
+
+        private int orderAt(int i) {
+            return this.orderGeneration[i] == this.generation ? this.order[i] : i;
+        }
+
+        private void setOrderAt(int i, int site) {
+            this.order[i] = site;
+            this.orderGeneration[i] = this.generation;
+        }
+    }
+
+    private class TrialTask extends RecursiveAction {
+        /*
+        The RNG streams are split off along a recursion tree whose shape depends only on the number of trials,
+        so every trial sees the same stream no matter how many threads end up executing the tasks.
+         */
+        private static final long serialVersionUID = 1L;
+
+        private final double[] results;
+        private final int lo;
+        private final int hi;
+        private final RandomSource random;
+        private final ConcurrentLinkedQueue<Workspace> workspaces;
+
+        private TrialTask(double[] results, int lo, int hi, RandomSource random, ConcurrentLinkedQueue<Workspace> workspaces) {
+            this.results = results;
+            this.lo = lo;
+            this.hi = hi;
+            this.random = random;
+            this.workspaces = workspaces;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.hi - this.lo == 1) {
+                this.results[this.lo] = runTrial(this.random, this.workspaces);
+                return;
+            }
+            int mid = (this.lo + this.hi) >>> 1;
+            RandomSource leftRandom = this.random.split();
+            invokeAll(
+                    new TrialTask(this.results, this.lo, mid, leftRandom, this.workspaces),
+                    new TrialTask(this.results, mid, this.hi, this.random, this.workspaces)
+            );
+        }
+    }
+}
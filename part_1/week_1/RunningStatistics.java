@@ -0,0 +1,41 @@
+public class RunningStatistics {
+    /*
+    Welford's online algorithm: mean and variance in O(1) memory, without the cancellation problems of accumulating
+    the sum of squares.
+     */
+    private long count;
+    private double mean;
+    private double squaredDeviations;
+
+    public RunningStatistics() {
+        this.count = 0;
+        this.mean = 0;
+        this.squaredDeviations = 0;
+    }
+
+    public void add(double value) {
+        this.count++;
+        double delta = value - this.mean;
+        this.mean += delta / this.count;
+        this.squaredDeviations += delta * (value - this.mean);
+    }
+
+    public long count() {
+        return this.count;
+    }
+
+    public double mean() {
+        if (this.count == 0) {
+            return Double.NaN;
+        }
+        return this.mean;
+    }
+
+    // sample standard deviation, NaN for fewer than two values
+    public double stddev() {
+        if (this.count < 2) {
+            return Double.NaN;
+        }
+        return Math.sqrt(this.squaredDeviations / (this.count - 1));
+    }
+}
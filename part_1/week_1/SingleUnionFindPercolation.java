@@ -0,0 +1,133 @@
+public class SingleUnionFindPercolation {
+    /*
+    Same semantics as Percolation, but without virtual sites and the second parent array used there to avoid backwash.
+    Every site keeps a single state byte: whether it is open and, for roots only, whether its component touches the
+    top or the bottom row. The remaining bits hold the union-by-rank rank of roots (at most log2(n^2) < 32).
+     */
+    private static final int OPEN = 1;
+    private static final int TOUCHES_TOP = 1 << 1;
+    private static final int TOUCHES_BOTTOM = 1 << 2;
+    private static final int RANK_SHIFT = 3;
+
+    private final int[] parent;
+    private final byte[] state;
+    private int openSites;
+    private boolean percolates;
+    private final int n;
+
+    public SingleUnionFindPercolation(int n) {
+        if (n < 1) {
+            throw new IllegalArgumentException(String.format("n required to be positive, got %d", n));
+        }
+        this.n = n;
+        this.parent = new int[n * n];
+        for (int i = 0; i < this.parent.length; ++i) {
+            this.parent[i] = i;
+        }
+        this.state = new byte[n * n];
+        this.openSites = 0;
+        this.percolates = false;
+    }
+
+    public void open(int row, int col) {
+        this.assertCoordinatesValid(row, col);
+
+        int idx = this.toSingleIndex(row, col);
+        if ((this.state[idx] & OPEN) != 0) {
+            return;
+        }
+        int flags = OPEN;
+        if (row == 1) {
+            flags |= TOUCHES_TOP;
+        }
+        if (row == this.n) {
+            flags |= TOUCHES_BOTTOM;
+        }
+        this.state[idx] = (byte) flags;
+
+        if (row > 1) {
+            this.unionIfOpen(idx, idx - this.n);
+        }
+        if (row < this.n) {
+            this.unionIfOpen(idx, idx + this.n);
+        }
+        if (col > 1) {
+            this.unionIfOpen(idx, idx - 1);
+        }
+        if (col < this.n) {
+            this.unionIfOpen(idx, idx + 1);
+        }
+
+        int rootFlags = this.state[this.find(idx)];
+        if ((rootFlags & TOUCHES_TOP) != 0 && (rootFlags & TOUCHES_BOTTOM) != 0) {
+            this.percolates = true;
+        }
+        this.openSites++;
+    }
+
+    public boolean isOpen(int row, int col) {
+        this.assertCoordinatesValid(row, col);
+        return (this.state[this.toSingleIndex(row, col)] & OPEN) != 0;
+    }
+
+    public boolean isFull(int row, int col) {
+        this.assertCoordinatesValid(row, col);
+        int idx = this.toSingleIndex(row, col);
+        if ((this.state[idx] & OPEN) == 0) {
+            return false;
+        }
+        return (this.state[this.find(idx)] & TOUCHES_TOP) != 0;
+    }
+
+    public int numberOfOpenSites() {
+        return this.openSites;
+    }
+
+    public boolean percolates() {
+        return this.percolates;
+    }
+
+    private void unionIfOpen(int idx, int neighborIdx) {
+        if ((this.state[neighborIdx] & OPEN) == 0) {
+            return;
+        }
+        int r1 = this.find(idx);
+        int r2 = this.find(neighborIdx);
+        if (r1 == r2) {
+            return;
+        }
+
+        int s1 = this.state[r1] & 0xFF;
+        int s2 = this.state[r2] & 0xFF;
+        int rank1 = s1 >>> RANK_SHIFT;
+        int rank2 = s2 >>> RANK_SHIFT;
+        int mergedFlags = (s1 | s2) & (OPEN | TOUCHES_TOP | TOUCHES_BOTTOM);
+        if (rank1 < rank2) {
+            this.parent[r1] = r2;
+            this.state[r2] = (byte) ((rank2 << RANK_SHIFT) | mergedFlags);
+        } else {
+            this.parent[r2] = r1;
+            int mergedRank = rank1 == rank2 ? rank1 + 1 : rank1;
+            this.state[r1] = (byte) ((mergedRank << RANK_SHIFT) | mergedFlags);
+        }
+    }
+
+    private int find(int idx) {
+        int e = idx;
+        while (e != this.parent[e]) {
+            this.parent[e] = this.parent[this.parent[e]];  // path halving
+            e = this.parent[e];
+        }
+        return e;
+    }
+
+    private int toSingleIndex(int row, int col) {
+        return (row - 1) * this.n + (col - 1);
+    }
+
+    private void assertCoordinatesValid(int row, int col) {
+        if (row < 1 || col < 1 || row > this.n || col > this.n) {
+            throw new IllegalArgumentException(String.format("row and col required to be in range [1, n], got row = %d, col = %d", row, col));
+        }
+    }
+}
@@ -0,0 +1,271 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+
+public class StreamingPercolationChecker {
+    /*
+    Hoshen-Kopelman labeling of an n x n grid that is fed one bit-packed row at a time (site col of a row is bit
+    col % 8 of byte col / 8, set meaning open). Only the labels of the previous and the current row are kept: labels
+    [0, n) belong to the previous row, labels [n, 2n) to the current one, and a small union-find over these 2n labels
+    carries each cluster's size and whether it touches the top row. After every row, clusters that did not continue
+    into it are final and get counted, and the surviving ones are compacted back into [0, n). Memory is O(n).
+     */
+    private static final int TOUCHES_TOP = 1;
+    private static final int MAX_WINDOW_BYTES = 1 << 30;
+
+    private final int n;
+    private final int rowBytes;
+    private final int[] prevLabels;
+    private final int[] currLabels;
+    private final int[] parent;
+    private final long[] size;
+    private final byte[] flags;
+    private final int[] mark;
+    private final int[] relabeled;
+    private final long[] compactedSize;
+    private final byte[] compactedFlags;
+    private int prevLabelCount;
+    private int rowsProcessed;
+    private long clusterCount;
+    private long largestClusterSize;
+    private boolean percolates;
+
+    public StreamingPercolationChecker(int n) {
+        if (n < 1) {
+            throw new IllegalArgumentException(String.format("n required to be positive, got %d", n));
+        }
+        this.n = n;
+        this.rowBytes = (n + 7) / 8;
+        this.prevLabels = new int[n];
+        this.currLabels = new int[n];
+        this.parent = new int[2 * n];
+        this.size = new long[2 * n];
+        this.flags = new byte[2 * n];
+        this.mark = new int[2 * n];
+        this.relabeled = new int[2 * n];
+        this.compactedSize = new long[n];
+        this.compactedFlags = new byte[n];
+        this.prevLabelCount = 0;
+        this.rowsProcessed = 0;
+        this.clusterCount = 0;
+        this.largestClusterSize = 0;
+        this.percolates = false;
+        for (int col = 0; col < n; ++col) {
+            this.prevLabels[col] = -1;
+        }
+    }
+
+    // reads a file of n rows, each (n + 7) / 8 bytes, through read-only memory mappings of whole rows
+    public static StreamingPercolationChecker check(Path file, int n) {
+        StreamingPercolationChecker checker = new StreamingPercolationChecker(n);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long expectedSize = (long) checker.rowBytes * n;
+            if (channel.size() != expectedSize) {
+                throw new IllegalArgumentException(String.format("File size required to be %d bytes for n = %d, got %d", expectedSize, n, channel.size()));
+            }
+            int rowsPerWindow = Math.max(1, MAX_WINDOW_BYTES / checker.rowBytes);
+            byte[] row = new byte[checker.rowBytes];
+            for (int firstRow = 0; firstRow < n; firstRow += rowsPerWindow) {
+                int rows = Math.min(rowsPerWindow, n - firstRow);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, (long) firstRow * checker.rowBytes, (long) rows * checker.rowBytes);
+                for (int i = 0; i < rows; ++i) {
+                    window.get(row);
+                    checker.addRow(row);
+                }
+            }
+        } catch (IOException exc) {
+            throw new UncheckedIOException(exc);
+        }
+        return checker;
+    }
+
+    public void addRow(byte[] packedRow) {
+        if (packedRow == null || packedRow.length < this.rowBytes) {
+            throw new IllegalArgumentException(String.format("Row required to have at least %d bytes", this.rowBytes));
+        }
+        if (this.rowsProcessed == this.n) {
+            throw new IllegalStateException(String.format("All %d rows already processed", this.n));
+        }
+
+        int stamp = this.rowsProcessed + 1;
+        int nextLabel = this.n;
+        for (int col = 0; col < this.n; ++col) {
+            if (((packedRow[col >>> 3] >>> (col & 7)) & 1) == 0) {
+                this.currLabels[col] = -1;
+                continue;
+            }
+            int label;
+            if (col > 0 && this.currLabels[col - 1] >= 0) {
+                label = this.currLabels[col - 1];
+            } else {
+                label = nextLabel++;
+                this.parent[label] = label;
+                this.size[label] = 0;
+                this.flags[label] = (byte) (this.rowsProcessed == 0 ? TOUCHES_TOP : 0);
+            }
+            this.currLabels[col] = label;
+            this.size[this.find(label)]++;
+            if (this.prevLabels[col] >= 0) {
+                this.union(label, this.prevLabels[col]);
+            }
+        }
+        this.rowsProcessed++;
+
+        // clusters of the previous row that no current site connects to are complete
+        for (int col = 0; col < this.n; ++col) {
+            if (this.currLabels[col] >= 0) {
+                this.mark[this.find(this.currLabels[col])] = stamp;
+            }
+        }
+        for (int label = 0; label < this.prevLabelCount; ++label) {
+            int root = this.find(label);
+            if (this.mark[root] != stamp) {
+                this.mark[root] = stamp;
+                this.finishCluster(root);
+            }
+        }
+
+        if (this.rowsProcessed == this.n) {
+            this.finishLastRow(stamp);
+        } else {
+            this.compactLabels(stamp);
+        }
+    }
+
+    public boolean percolates() {
+        this.assertComplete();
+        return this.percolates;
+    }
+
+    public long clusterCount() {
+        this.assertComplete();
+        return this.clusterCount;
+    }
+
+    public long largestClusterSize() {
+        this.assertComplete();
+        return this.largestClusterSize;
+    }
+
+    private void compactLabels(int stamp) {
+        int labelCount = 0;
+        for (int col = 0; col < this.n; ++col) {
+            if (this.currLabels[col] < 0) {
+                this.prevLabels[col] = -1;
+                continue;
+            }
+            int root = this.find(this.currLabels[col]);
+            // mark == -stamp flags roots that already got their compacted label during this row
+            if (this.mark[root] != -stamp) {
+                this.mark[root] = -stamp;
+                this.relabeled[root] = labelCount;
+                this.compactedSize[labelCount] = this.size[root];
+                this.compactedFlags[labelCount] = this.flags[root];
+                labelCount++;
+            }
+            this.prevLabels[col] = this.relabeled[root];
+        }
+        for (int label = 0; label < labelCount; ++label) {
+            this.parent[label] = label;
+            this.size[label] = this.compactedSize[label];
+            this.flags[label] = this.compactedFlags[label];
+        }
+        this.prevLabelCount = labelCount;
+    }
+
+    private void finishLastRow(int stamp) {
+        for (int col = 0; col < this.n; ++col) {
+            if (this.currLabels[col] < 0) {
+                continue;
+            }
+            int root = this.find(this.currLabels[col]);
+            if (this.mark[root] != -stamp) {
+                this.mark[root] = -stamp;
+                this.finishCluster(root);
+                if ((this.flags[root] & TOUCHES_TOP) != 0) {
+                    this.percolates = true;
+                }
+            }
+        }
+    }
+
+    private void finishCluster(int root) {
+        this.clusterCount++;
+        this.largestClusterSize = Math.max(this.largestClusterSize, this.size[root]);
+    }
+
+    private void union(int l1, int l2) {
+        int r1 = this.find(l1);
+        int r2 = this.find(l2);
+        if (r1 == r2) {
+            return;
+        }
+        if (this.size[r1] < this.size[r2]) {
+            int tmp = r1;
+            r1 = r2;
+            r2 = tmp;
+        }
+        this.parent[r2] = r1;
+        this.size[r1] += this.size[r2];
+        this.flags[r1] |= this.flags[r2];
+    }
+
+    private int find(int label) {
+        int e = label;
+        while (e != this.parent[e]) {
+            this.parent[e] = this.parent[this.parent[e]];  // path halving
+            e = this.parent[e];
+        }
+        return e;
+    }
+
+    private void assertComplete() {
+        if (this.rowsProcessed < this.n) {
+            throw new IllegalStateException(String.format("Only %d of %d rows processed", this.rowsProcessed, this.n));
+        }
+    }
+
+    // writes a random bitmap with site vacancy probability p to a temporary file and checks it
+    public static void main(String[] args) throws IOException {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        double p = args.length > 1 ? Double.parseDouble(args[1]) : 0.6;
+
+        Path file = Files.createTempFile("percolation-bitmap", ".bin");
+        try {
+            SplittableRandom random = new SplittableRandom(42);
+            int rowBytes = (n + 7) / 8;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                ByteBuffer row = ByteBuffer.allocate(rowBytes);
+                for (int r = 0; r < n; ++r) {
+                    row.clear();
+                    for (int b = 0; b < rowBytes; ++b) {
+                        int bits = 0;
+                        for (int bit = 0; bit < 8 && b * 8 + bit < n; ++bit) {
+                            if (random.nextDouble() < p) {
+                                bits |= 1 << bit;
+                            }
+                        }
+                        row.put((byte) bits);
+                    }
+                    row.flip();
+                    while (row.hasRemaining()) {
+                        channel.write(row);
+                    }
+                }
+            }
+
+            StreamingPercolationChecker checker = StreamingPercolationChecker.check(file, n);
+            System.out.printf("percolates             = %s\n", checker.percolates());
+            System.out.printf("clusters               = %d\n", checker.clusterCount());
+            System.out.printf("largest cluster size   = %d\n", checker.largestClusterSize());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,230 @@
+public class UnionFind {
+    /*
+    Weighted union-find over the elements [0, n) with selectable linking (union by size or by rank) and path
+    compression (halving: every visited element skips to its grandparent; splitting: the same, but the walk continues
+    from the old parent, so each element on the path is compressed once). Either combination gives the inverse
+    Ackermann amortized bound.
+
+    Instrumentation is switched on with -Dunionfind.instrumentation=true. The flag is a static final constant, so with
+    it off the JIT folds all instrumentation branches away.
+     */
+    public enum Linking {
+        SIZE,
+        RANK
+    }
+
+    public enum Compression {
+        HALVING,
+        SPLITTING
+    }
+
+    static final boolean INSTRUMENTED = Boolean.getBoolean("unionfind.instrumentation");
+
+    private final int[] parent;
+    private final int[] weight;  // size or rank of roots, depending on the linking
+    private final Linking linking;
+    private final Compression compression;
+    private final UnionFindStats stats;
+    private int components;
+
+    public UnionFind(int n) {
+        this(n, Linking.SIZE, Compression.HALVING);
+    }
+
+    public UnionFind(int n, Linking linking, Compression compression) {
+        this(n, linking, compression, INSTRUMENTED ? new UnionFindStats() : null);
+    }
+
+    // several structures may share one stats object, which is ignored unless instrumentation is enabled
+    public UnionFind(int n, Linking linking, Compression compression, UnionFindStats stats) {
+        if (n < 0) {
+            throw new IllegalArgumentException(String.format("n required to be non-negative, got %d", n));
+        }
+        if (linking == null || compression == null) {
+            throw new IllegalArgumentException("Null linking or compression passed to constructor");
+        }
+        if (INSTRUMENTED && stats == null) {
+            throw new IllegalArgumentException("Null stats passed to constructor while instrumentation is enabled");
+        }
+        this.parent = new int[n];
+        this.weight = new int[n];
+        this.linking = linking;
+        this.compression = compression;
+        this.stats = stats;
+        this.reset();
+    }
+
+    public int size() {
+        return this.parent.length;
+    }
+
+    public int components() {
+        return this.components;
+    }
+
+    // every element becomes a singleton again
+    public void reset() {
+        for (int i = 0; i < this.parent.length; ++i) {
+            this.parent[i] = i;
+            this.weight[i] = this.initialWeight();
+        }
+        this.components = this.parent.length;
+    }
+
+    public int find(int p) {
+        this.assertElementValid(p);
+        return this.findUnchecked(p);
+    }
+
+    public boolean connected(int p, int q) {
+        this.assertElementValid(p);
+        this.assertElementValid(q);
+        return this.findUnchecked(p) == this.findUnchecked(q);
+    }
+
+    // returns whether p and q were in different components before
+    public boolean union(int p, int q) {
+        this.assertElementValid(p);
+        this.assertElementValid(q);
+        return this.unionUnchecked(p, q);
+    }
+
+    // unions p[i] with q[i] for all i, validating the whole batch upfront; returns the number of merges
+    public int union(int[] p, int[] q) {
+        if (p == null || q == null || p.length != q.length) {
+            throw new IllegalArgumentException("Edge endpoint arrays required to be non-null and of equal length");
+        }
+        this.assertElementsValid(p, 0, p.length);
+        this.assertElementsValid(q, 0, q.length);
+        int merges = 0;
+        for (int i = 0; i < p.length; ++i) {
+            if (this.unionUnchecked(p[i], q[i])) {
+                merges++;
+            }
+        }
+        return merges;
+    }
+
+    // unions edges[2i] with edges[2i + 1] for all i, validating the whole batch upfront; returns the number of merges
+    public int union(int[] edges) {
+        if (edges == null || edges.length % 2 != 0) {
+            throw new IllegalArgumentException("Edge array required to be non-null and of even length");
+        }
+        this.assertElementsValid(edges, 0, edges.length);
+        int merges = 0;
+        for (int i = 0; i < edges.length; i += 2) {
+            if (this.unionUnchecked(edges[i], edges[i + 1])) {
+                merges++;
+            }
+        }
+        return merges;
+    }
+
+    // null unless instrumentation is enabled, see the class comment
+    public UnionFindStats stats() {
+        return this.stats;
+    }
+
+    /*
+    Makes p a singleton without touching anything else, for callers that track which elements are live themselves
+    (Percolation re-roots a site when it is opened after an O(1) reset). Only valid if no live element has p on its
+    path; components() is not updated.
+     */
+    void makeSet(int p) {
+        this.parent[p] = p;
+        this.weight[p] = this.initialWeight();
+    }
+
+    // raw arrays for bulk checkpointing
+    int[] parents() {
+        return this.parent;
+    }
+
+    int[] weights() {
+        return this.weight;
+    }
+
+    int findUnchecked(int p) {
+        int e = p;
+        int depth = 0;
+        int compressions = 0;
+        if (this.compression == Compression.HALVING) {
+            while (e != this.parent[e]) {
+                int grandparent = this.parent[this.parent[e]];
+                if (INSTRUMENTED) {
+                    // below the root's child, halving skips a level and actually rewrites the pointer
+                    boolean changed = grandparent != this.parent[e];
+                    depth += changed ? 2 : 1;
+                    compressions += changed ? 1 : 0;
+                }
+                this.parent[e] = grandparent;
+                e = grandparent;
+            }
+        } else {
+            while (e != this.parent[e]) {
+                int next = this.parent[e];
+                if (INSTRUMENTED) {
+                    depth++;
+                    compressions += this.parent[next] != next ? 1 : 0;
+                }
+                this.parent[e] = this.parent[next];
+                e = next;
+            }
+        }
+        if (INSTRUMENTED) {
+            this.stats.recordFind(depth, compressions);
+        }
+        return e;
+    }
+
+    boolean unionUnchecked(int p, int q) {
+        int r1 = this.findUnchecked(p);
+        int r2 = this.findUnchecked(q);
+        if (r1 == r2) {
+            return false;
+        }
+        if (this.weight[r1] < this.weight[r2]) {
+            int tmp = r1;
+            r1 = r2;
+            r2 = tmp;
+        }
+        this.parent[r2] = r1;
+        if (this.linking == Linking.SIZE) {
+            this.weight[r1] += this.weight[r2];
+        } else if (this.weight[r1] == this.weight[r2]) {
+            this.weight[r1]++;
+        }
+        this.components--;
+        if (INSTRUMENTED) {
+            // union by rank or size bounds the height by the rank or by log2 of the size
+            int heightBound = this.linking == Linking.RANK ? this.weight[r1] : 31 - Integer.numberOfLeadingZeros(this.weight[r1]);
+            this.stats.recordUnion(heightBound);
+        }
+        return true;
+    }
+
+    private int initialWeight() {
+        return this.linking == Linking.SIZE ? 1 : 0;
+    }
+
+    private void assertElementValid(int p) {
+        if (p < 0 || p >= this.parent.length) {
+            throw new IllegalArgumentException(String.format("element required to be in range [0, %d), got %d", this.parent.length, p));
+        }
+    }
+
+    private void assertElementsValid(int[] elements, int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        int min = elements[from];
+        int max = elements[from];
+        for (int i = from + 1; i < to; ++i) {
+            min = Math.min(min, elements[i]);
+            max = Math.max(max, elements[i]);
+        }
+        if (min < 0 || max >= this.parent.length) {
+            throw new IllegalArgumentException(String.format("elements required to be in range [0, %d), got %d", this.parent.length, min < 0 ? min : max));
+        }
+    }
+}
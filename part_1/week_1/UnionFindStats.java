@@ -0,0 +1,91 @@
+public class UnionFindStats {
+    /*
+    Counters for union-find behaviour. Find depths go into a log2 histogram: bucket 0 counts depth 0 and bucket i > 0
+    counts depths in [2^(i - 1), 2^i). A find's depth is the length of the path it walked to the root, its compression
+    steps are the parent pointers it actually changed. The maximum tree height is bracketed by the deepest find from
+    below and by the largest rank (Linking.RANK) or floor(log2(size)) (Linking.SIZE) of a root right after a union
+    from above; without compression the rank bound is exact.
+     */
+    private static final int HISTOGRAM_BUCKETS = 33;
+
+    private final long[] findDepthHistogram;
+    private long finds;
+    private long unions;
+    private long compressionSteps;
+    private int maxFindDepth;
+    private int maxHeightBound;
+    private int operationMaxFindDepth;
+
+    public UnionFindStats() {
+        this.findDepthHistogram = new long[HISTOGRAM_BUCKETS];
+        this.finds = 0;
+        this.unions = 0;
+        this.compressionSteps = 0;
+        this.maxFindDepth = 0;
+        this.maxHeightBound = 0;
+        this.operationMaxFindDepth = 0;
+    }
+
+    public void recordFind(int depth, int compressionSteps) {
+        this.finds++;
+        this.compressionSteps += compressionSteps;
+        this.findDepthHistogram[32 - Integer.numberOfLeadingZeros(depth)]++;
+        this.maxFindDepth = Math.max(this.maxFindDepth, depth);
+        this.operationMaxFindDepth = Math.max(this.operationMaxFindDepth, depth);
+    }
+
+    public void recordUnion(int heightBound) {
+        this.unions++;
+        this.maxHeightBound = Math.max(this.maxHeightBound, heightBound);
+    }
+
+    // starts tracking the maximum find depth of a single operation, see operationMaxFindDepth()
+    public void beginOperation() {
+        this.operationMaxFindDepth = 0;
+    }
+
+    public long finds() {
+        return this.finds;
+    }
+
+    public long unions() {
+        return this.unions;
+    }
+
+    public long compressionSteps() {
+        return this.compressionSteps;
+    }
+
+    // deepest path walked by any find, a lower bound on the maximum tree height reached
+    public int maxFindDepth() {
+        return this.maxFindDepth;
+    }
+
+    // upper bound on the maximum tree height reached, see the class comment
+    public int maxHeightBound() {
+        return this.maxHeightBound;
+    }
+
+    public int operationMaxFindDepth() {
+        return this.operationMaxFindDepth;
+    }
+
+    public long[] findDepthHistogram() {
+        return this.findDepthHistogram.clone();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("finds = %d, unions = %d, compression steps = %d, max find depth = %d, max height bound = %d", this.finds, this.unions, this.compressionSteps, this.maxFindDepth, this.maxHeightBound));
+        for (int i = 0; i < HISTOGRAM_BUCKETS; ++i) {
+            if (this.findDepthHistogram[i] == 0) {
+                continue;
+            }
+            long lo = i == 0 ? 0 : 1L << (i - 1);
+            long hi = i == 0 ? 0 : (1L << i) - 1;
+            sb.append(String.format("\ndepth [%d, %d]: %d", lo, hi, this.findDepthHistogram[i]));
+        }
+        return sb.toString();
+    }
+}
@@ -1,5 +1,7 @@
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
 
 public class Deque<Item> implements Iterable<Item> {
 
@@ -96,6 +98,12 @@ public class Deque<Item> implements Iterable<Item> {
         return new IteratorImpl();
     }
 
+    // sized and evenly splitting, so parallel streams over the deque can use all cores
+    @Override
+    public Spliterator<Item> spliterator() {
+        return new SpliteratorImpl(this.first, this.size);
+    }
+
     // (required)
     public static void main(String[] args) {
         Deque.printExceptionStackTracesOnIllegalActions();
@@ -127,6 +135,63 @@ public class Deque<Item> implements Iterable<Item> {
         }
     }
     
+    /*
+    Covers the given number of nodes starting at curr. A split walks to the midpoint and hands off the first half, so
+    the halves are exactly sized; the walk is linear in the range, but each level of splitting runs in parallel.
+     */
+    private class SpliteratorImpl implements Spliterator<Item> {
+        private Node curr;
+        private int remaining;
+
+        private SpliteratorImpl(Node curr, int remaining) {
+            this.curr = curr;
+            this.remaining = remaining;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Item> action) {
+            if (this.remaining == 0) {
+                return false;
+            }
+            action.accept(this.curr.value);
+            this.curr = this.curr.next;
+            this.remaining--;
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super Item> action) {
+            for (; this.remaining > 0; --this.remaining) {
+                action.accept(this.curr.value);
+                this.curr = this.curr.next;
+            }
+        }
+
+        @Override
+        public Spliterator<Item> trySplit() {
+            if (this.remaining < 2) {
+                return null;
+            }
+            int half = this.remaining / 2;
+            Node prefixStart = this.curr;
+            for (int i = 0; i < half; ++i) {
+                this.curr = this.curr.next;
+            }
+            this.remaining -= half;
+            return new SpliteratorImpl(prefixStart, half);
+        }
+
+        @Override
+        public long estimateSize() {
+            return this.remaining;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.NONNULL;
+        }
+    }
+
     private void assertArgumentNotNull(Item value) {
         if (value == null) {
             throw new IllegalArgumentException("Null arguments not supported");
@@ -0,0 +1,426 @@
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.StreamSupport;
+
+public class DequeBenchmark {
+
+    private static final int WARMUP_ROUNDS = 10;
+    private static final int MEASURED_ROUNDS = 10;
+
+    public static void main(String[] args) {
+        int items = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        DequeBenchmark.benchmarkProducerConsumer(items);
+        DequeBenchmark.benchmarkLatency(items);
+        DequeBenchmark.benchmarkWorkStealing(items);
+        DequeBenchmark.benchmarkParallelStream(items);
+    }
+
+    // a producer appends bursts at the back while a consumer drains the front, then the remainder is iterated
+    private static void benchmarkProducerConsumer(int items) {
+        Integer[] values = new Integer[1024];
+        for (int i = 0; i < values.length; ++i) {
+            values[i] = i;
+        }
+
+        for (int round = 0; round < WARMUP_ROUNDS; ++round) {
+            DequeBenchmark.runLinked(items, values);
+            DequeBenchmark.runRingBuffer(items, values);
+            DequeBenchmark.runSegmented(items, values);
+            DequeBenchmark.runArrayDeque(items, values);
+        }
+
+        long linkedNanos = 0;
+        long ringBufferNanos = 0;
+        long segmentedNanos = 0;
+        long arrayDequeNanos = 0;
+        long linkedBytes = 0;
+        long ringBufferBytes = 0;
+        long segmentedBytes = 0;
+        long arrayDequeBytes = 0;
+        for (int round = 0; round < MEASURED_ROUNDS; ++round) {
+            long bytesBefore = DequeBenchmark.allocatedBytes();
+            long nanosBefore = System.nanoTime();
+            DequeBenchmark.runLinked(items, values);
+            linkedNanos += System.nanoTime() - nanosBefore;
+            linkedBytes += DequeBenchmark.allocatedBytes() - bytesBefore;
+
+            bytesBefore = DequeBenchmark.allocatedBytes();
+            nanosBefore = System.nanoTime();
+            DequeBenchmark.runRingBuffer(items, values);
+            ringBufferNanos += System.nanoTime() - nanosBefore;
+            ringBufferBytes += DequeBenchmark.allocatedBytes() - bytesBefore;
+
+            bytesBefore = DequeBenchmark.allocatedBytes();
+            nanosBefore = System.nanoTime();
+            DequeBenchmark.runSegmented(items, values);
+            segmentedNanos += System.nanoTime() - nanosBefore;
+            segmentedBytes += DequeBenchmark.allocatedBytes() - bytesBefore;
+
+            bytesBefore = DequeBenchmark.allocatedBytes();
+            nanosBefore = System.nanoTime();
+            DequeBenchmark.runArrayDeque(items, values);
+            arrayDequeNanos += System.nanoTime() - nanosBefore;
+            arrayDequeBytes += DequeBenchmark.allocatedBytes() - bytesBefore;
+        }
+
+        long operations = (long) MEASURED_ROUNDS * items;
+        System.out.printf("%d items per round\n", items);
+        System.out.printf("Deque                 : %f ns, %f allocated bytes per item\n", (double) linkedNanos / operations, (double) linkedBytes / operations);
+        System.out.printf("RingBufferDeque       : %f ns, %f allocated bytes per item\n", (double) ringBufferNanos / operations, (double) ringBufferBytes / operations);
+        System.out.printf("SegmentedDeque        : %f ns, %f allocated bytes per item\n", (double) segmentedNanos / operations, (double) segmentedBytes / operations);
+        System.out.printf("java.util.ArrayDeque  : %f ns, %f allocated bytes per item\n", (double) arrayDequeNanos / operations, (double) arrayDequeBytes / operations);
+    }
+
+    private static long runLinked(int items, Integer[] values) {
+        Deque<Integer> dq = new Deque<>();
+        long checksum = 0;
+        for (int i = 0; i < items; ++i) {
+            dq.addLast(values[i & (values.length - 1)]);
+            if ((i & 3) == 3) {
+                checksum += dq.removeFirst();
+            }
+        }
+        for (int value : dq) {
+            checksum += value;
+        }
+        return checksum;
+    }
+
+    private static long runRingBuffer(int items, Integer[] values) {
+        RingBufferDeque<Integer> dq = new RingBufferDeque<>();
+        long checksum = 0;
+        for (int i = 0; i < items; ++i) {
+            dq.addLast(values[i & (values.length - 1)]);
+            if ((i & 3) == 3) {
+                checksum += dq.removeFirst();
+            }
+        }
+        for (int value : dq) {
+            checksum += value;
+        }
+        return checksum;
+    }
+
+    private static long runSegmented(int items, Integer[] values) {
+        SegmentedDeque<Integer> dq = new SegmentedDeque<>();
+        long checksum = 0;
+        for (int i = 0; i < items; ++i) {
+            dq.addLast(values[i & (values.length - 1)]);
+            if ((i & 3) == 3) {
+                checksum += dq.removeFirst();
+            }
+        }
+        for (int value : dq) {
+            checksum += value;
+        }
+        return checksum;
+    }
+
+    private static long runArrayDeque(int items, Integer[] values) {
+        java.util.ArrayDeque<Integer> dq = new java.util.ArrayDeque<>();
+        long checksum = 0;
+        for (int i = 0; i < items; ++i) {
+            dq.addLast(values[i & (values.length - 1)]);
+            if ((i & 3) == 3) {
+                checksum += dq.removeFirst();
+            }
+        }
+        for (int value : dq) {
+            checksum += value;
+        }
+        return checksum;
+    }
+
+    /*
+    Times every single operation while the deque grows to the given number of items and is drained again, and reports
+    tail percentiles of the per-operation latency. Doubling arrays show their O(n) copies in the far tail, the
+    segmented deque should not. Each timed operation includes the cost of System.nanoTime() itself.
+     */
+    private static void benchmarkLatency(int items) {
+        Integer[] values = new Integer[1024];
+        for (int i = 0; i < values.length; ++i) {
+            values[i] = i;
+        }
+        long[] linkedLatencies = new long[2 * items];
+        long[] ringBufferLatencies = new long[2 * items];
+        long[] segmentedLatencies = new long[2 * items];
+        long[] arrayDequeLatencies = new long[2 * items];
+
+        for (int round = 0; round < WARMUP_ROUNDS; ++round) {
+            DequeBenchmark.timeLinked(items, values, linkedLatencies);
+            DequeBenchmark.timeRingBuffer(items, values, ringBufferLatencies);
+            DequeBenchmark.timeSegmented(items, values, segmentedLatencies);
+            DequeBenchmark.timeArrayDeque(items, values, arrayDequeLatencies);
+        }
+        DequeBenchmark.timeLinked(items, values, linkedLatencies);
+        DequeBenchmark.timeRingBuffer(items, values, ringBufferLatencies);
+        DequeBenchmark.timeSegmented(items, values, segmentedLatencies);
+        DequeBenchmark.timeArrayDeque(items, values, arrayDequeLatencies);
+
+        System.out.printf("Per-operation latency in ns while growing to %d items and draining\n", items);
+        System.out.println("                          p50       p99     p99.9    p99.99       max");
+        DequeBenchmark.printPercentiles("Deque                 ", linkedLatencies);
+        DequeBenchmark.printPercentiles("RingBufferDeque       ", ringBufferLatencies);
+        DequeBenchmark.printPercentiles("SegmentedDeque        ", segmentedLatencies);
+        DequeBenchmark.printPercentiles("java.util.ArrayDeque  ", arrayDequeLatencies);
+    }
+
+    private static void timeLinked(int items, Integer[] values, long[] latencies) {
+        Deque<Integer> dq = new Deque<>();
+        for (int i = 0; i < items; ++i) {
+            long nanosBefore = System.nanoTime();
+            dq.addLast(values[i & (values.length - 1)]);
+            latencies[i] = System.nanoTime() - nanosBefore;
+        }
+        for (int i = items; i < 2 * items; ++i) {
+            long nanosBefore = System.nanoTime();
+            dq.removeFirst();
+            latencies[i] = System.nanoTime() - nanosBefore;
+        }
+    }
+
+    private static void timeRingBuffer(int items, Integer[] values, long[] latencies) {
+        RingBufferDeque<Integer> dq = new RingBufferDeque<>();
+        for (int i = 0; i < items; ++i) {
+            long nanosBefore = System.nanoTime();
+            dq.addLast(values[i & (values.length - 1)]);
+            latencies[i] = System.nanoTime() - nanosBefore;
+        }
+        for (int i = items; i < 2 * items; ++i) {
+            long nanosBefore = System.nanoTime();
+            dq.removeFirst();
+            latencies[i] = System.nanoTime() - nanosBefore;
+        }
+    }
+
+    private static void timeSegmented(int items, Integer[] values, long[] latencies) {
+        SegmentedDeque<Integer> dq = new SegmentedDeque<>();
+        for (int i = 0; i < items; ++i) {
+            long nanosBefore = System.nanoTime();
+            dq.addLast(values[i & (values.length - 1)]);
+            latencies[i] = System.nanoTime() - nanosBefore;
+        }
+        for (int i = items; i < 2 * items; ++i) {
+            long nanosBefore = System.nanoTime();
+            dq.removeFirst();
+            latencies[i] = System.nanoTime() - nanosBefore;
+        }
+    }
+
+    private static void timeArrayDeque(int items, Integer[] values, long[] latencies) {
+        java.util.ArrayDeque<Integer> dq = new java.util.ArrayDeque<>();
+        for (int i = 0; i < items; ++i) {
+            long nanosBefore = System.nanoTime();
+            dq.addLast(values[i & (values.length - 1)]);
+            latencies[i] = System.nanoTime() - nanosBefore;
+        }
+        for (int i = items; i < 2 * items; ++i) {
+            long nanosBefore = System.nanoTime();
+            dq.removeFirst();
+            latencies[i] = System.nanoTime() - nanosBefore;
+        }
+    }
+
+    // sorts the latencies in place
+    private static void printPercentiles(String label, long[] latencies) {
+        Arrays.sort(latencies);
+        System.out.printf("%s%9d %9d %9d %9d %9d\n", label,
+                DequeBenchmark.percentile(latencies, 0.5),
+                DequeBenchmark.percentile(latencies, 0.99),
+                DequeBenchmark.percentile(latencies, 0.999),
+                DequeBenchmark.percentile(latencies, 0.9999),
+                latencies[latencies.length - 1]);
+    }
+
+    private static long percentile(long[] sortedLatencies, double fraction) {
+        int idx = (int) Math.ceil(fraction * sortedLatencies.length) - 1;
+        return sortedLatencies[Math.max(0, idx)];
+    }
+
+    /*
+    Scheduler-like workload for 1, 2, 4, ... threads up to the number of cores (at least 2): one owner pushes tasks and pops every
+    other one back, the remaining threads steal. WorkStealingDeque is compared to a Deque behind a global lock, with
+    the owner working at the back and thieves taking from the front.
+     */
+    private static void benchmarkWorkStealing(int items) {
+        Integer[] values = new Integer[1024];
+        for (int i = 0; i < values.length; ++i) {
+            values[i] = i;
+        }
+        int maxThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            for (int round = 0; round < WARMUP_ROUNDS; ++round) {
+                DequeBenchmark.runWorkStealing(items, values, threads);
+                DequeBenchmark.runSynchronized(items, values, threads);
+            }
+            long workStealingNanos = 0;
+            long synchronizedNanos = 0;
+            for (int round = 0; round < MEASURED_ROUNDS; ++round) {
+                long nanosBefore = System.nanoTime();
+                DequeBenchmark.runWorkStealing(items, values, threads);
+                workStealingNanos += System.nanoTime() - nanosBefore;
+
+                nanosBefore = System.nanoTime();
+                DequeBenchmark.runSynchronized(items, values, threads);
+                synchronizedNanos += System.nanoTime() - nanosBefore;
+            }
+            double operations = (double) MEASURED_ROUNDS * items;
+            System.out.printf("WorkStealingDeque, %d threads: %f million items per second\n", threads, operations / (workStealingNanos / 1e9) / 1e6);
+            System.out.printf("synchronized Deque, %d threads: %f million items per second\n", threads, operations / (synchronizedNanos / 1e9) / 1e6);
+        }
+    }
+
+    private static long runWorkStealing(int items, Integer[] values, int threads) {
+        WorkStealingDeque<Integer> dq = new WorkStealingDeque<>();
+        AtomicBoolean ownerDone = new AtomicBoolean(false);
+        AtomicLong checksum = new AtomicLong(0);
+        Thread[] thieves = new Thread[threads - 1];
+        for (int t = 0; t < thieves.length; ++t) {
+            thieves[t] = new Thread(() -> {
+                long localChecksum = 0;
+                while (true) {
+                    Integer item = dq.steal();
+                    if (item != null) {
+                        localChecksum += item;
+                    } else if (ownerDone.get() && dq.isEmpty()) {
+                        break;
+                    }
+                }
+                checksum.addAndGet(localChecksum);
+            });
+            thieves[t].start();
+        }
+
+        long localChecksum = 0;
+        for (int i = 0; i < items; ++i) {
+            dq.push(values[i & (values.length - 1)]);
+            if ((i & 1) == 1) {
+                Integer item = dq.pop();
+                if (item != null) {
+                    localChecksum += item;
+                }
+            }
+        }
+        for (Integer item = dq.pop(); item != null; item = dq.pop()) {
+            localChecksum += item;
+        }
+        ownerDone.set(true);
+        DequeBenchmark.joinAll(thieves);
+        return checksum.addAndGet(localChecksum);
+    }
+
+    private static long runSynchronized(int items, Integer[] values, int threads) {
+        Deque<Integer> dq = new Deque<>();
+        AtomicBoolean ownerDone = new AtomicBoolean(false);
+        AtomicLong checksum = new AtomicLong(0);
+        Thread[] thieves = new Thread[threads - 1];
+        for (int t = 0; t < thieves.length; ++t) {
+            thieves[t] = new Thread(() -> {
+                long localChecksum = 0;
+                while (true) {
+                    Integer item = null;
+                    synchronized (dq) {
+                        if (!dq.isEmpty()) {
+                            item = dq.removeFirst();
+                        }
+                    }
+                    if (item != null) {
+                        localChecksum += item;
+                    } else if (ownerDone.get()) {
+                        break;
+                    }
+                }
+                checksum.addAndGet(localChecksum);
+            });
+            thieves[t].start();
+        }
+
+        long localChecksum = 0;
+        for (int i = 0; i < items; ++i) {
+            synchronized (dq) {
+                dq.addLast(values[i & (values.length - 1)]);
+                if ((i & 1) == 1 && !dq.isEmpty()) {
+                    localChecksum += dq.removeLast();
+                }
+            }
+        }
+        while (true) {
+            synchronized (dq) {
+                if (dq.isEmpty()) {
+                    break;
+                }
+                localChecksum += dq.removeLast();
+            }
+        }
+        ownerDone.set(true);
+        DequeBenchmark.joinAll(thieves);
+        return checksum.addAndGet(localChecksum);
+    }
+
+    // parallel sum over the sized, splitting spliterators against the unsized iterator-based fallback
+    private static void benchmarkParallelStream(int items) {
+        Deque<Integer> dq = new Deque<>();
+        RandomizedQueue<Integer> rq = new RandomizedQueue<>();
+        for (int i = 0; i < items; ++i) {
+            dq.addLast(i);
+            rq.enqueue(i);
+        }
+
+        for (int round = 0; round < WARMUP_ROUNDS; ++round) {
+            DequeBenchmark.parallelSum(dq.spliterator());
+            DequeBenchmark.parallelSum(Spliterators.spliteratorUnknownSize(dq.iterator(), Spliterator.ORDERED));
+            DequeBenchmark.parallelSum(rq.spliterator());
+            DequeBenchmark.parallelSum(Spliterators.spliteratorUnknownSize(rq.iterator(), 0));
+        }
+        long dequeNanos = 0;
+        long dequeFallbackNanos = 0;
+        long randomizedQueueNanos = 0;
+        long randomizedQueueFallbackNanos = 0;
+        for (int round = 0; round < MEASURED_ROUNDS; ++round) {
+            long nanosBefore = System.nanoTime();
+            DequeBenchmark.parallelSum(dq.spliterator());
+            dequeNanos += System.nanoTime() - nanosBefore;
+
+            nanosBefore = System.nanoTime();
+            DequeBenchmark.parallelSum(Spliterators.spliteratorUnknownSize(dq.iterator(), Spliterator.ORDERED));
+            dequeFallbackNanos += System.nanoTime() - nanosBefore;
+
+            nanosBefore = System.nanoTime();
+            DequeBenchmark.parallelSum(rq.spliterator());
+            randomizedQueueNanos += System.nanoTime() - nanosBefore;
+
+            nanosBefore = System.nanoTime();
+            DequeBenchmark.parallelSum(Spliterators.spliteratorUnknownSize(rq.iterator(), 0));
+            randomizedQueueFallbackNanos += System.nanoTime() - nanosBefore;
+        }
+        System.out.printf("Parallel sum over %d items, %d cores\n", items, Runtime.getRuntime().availableProcessors());
+        System.out.printf("Deque, sized spliterator              : %f ms\n", dequeNanos / 1e6 / MEASURED_ROUNDS);
+        System.out.printf("Deque, iterator fallback              : %f ms\n", dequeFallbackNanos / 1e6 / MEASURED_ROUNDS);
+        System.out.printf("RandomizedQueue, sized spliterator    : %f ms\n", randomizedQueueNanos / 1e6 / MEASURED_ROUNDS);
+        System.out.printf("RandomizedQueue, iterator fallback    : %f ms\n", randomizedQueueFallbackNanos / 1e6 / MEASURED_ROUNDS);
+    }
+
+    private static long parallelSum(Spliterator<Integer> spliterator) {
+        return StreamSupport.stream(spliterator, true).mapToLong(Integer::longValue).sum();
+    }
+
+    private static void joinAll(Thread[] threads) {
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException exc) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for benchmark threads", exc);
+            }
+        }
+    }
+
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
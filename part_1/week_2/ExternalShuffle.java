@@ -0,0 +1,324 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+public class ExternalShuffle {
+    /*
+    Uniformly random permutation of the lines of a file larger than memory. Every line is scattered to one of B
+    bucket files chosen uniformly at random, then each bucket is read back, shuffled in memory with Fisher-Yates and
+    appended to the output. Independent uniform bucket choices followed by uniform shuffles within the buckets give
+    an exactly uniform permutation of the whole input. B is picked so that buckets are expected to fill half the memory
+    budget; one that still turns out too large is shuffled by the same procedure recursively. Lines longer than the
+    memory budget are rejected.
+
+    All file access is sequential, through large buffers. A missing newline at the end of the input is added.
+     */
+    private static final int READ_BUFFER_BYTES = 1 << 20;
+    private static final int BUCKET_BUFFER_BYTES = 1 << 16;
+    private static final int MAX_BUCKETS = 1024;
+
+    private final long memoryBudget;
+    private final Path temporaryDirectory;
+    private final RandomSource random;
+
+    // memoryBudget bounds the bytes of a bucket shuffled in memory, on top of which come the bucket write buffers
+    public ExternalShuffle(long memoryBudget, Path temporaryDirectory, RandomSource random) {
+        if (memoryBudget < BUCKET_BUFFER_BYTES || memoryBudget > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException(String.format("memoryBudget required to be in range [%d, %d], got %d", BUCKET_BUFFER_BYTES, Integer.MAX_VALUE - 8, memoryBudget));
+        }
+        if (temporaryDirectory == null || random == null) {
+            throw new IllegalArgumentException("Null temporaryDirectory or random passed to constructor");
+        }
+        this.memoryBudget = memoryBudget;
+        this.temporaryDirectory = temporaryDirectory;
+        this.random = random;
+    }
+
+    public void shuffle(Path input, Path output) throws IOException {
+        try (FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer outBuffer = ByteBuffer.allocateDirect(READ_BUFFER_BYTES);
+            this.shuffle(input, out, outBuffer);
+            ExternalShuffle.drain(outBuffer, out);
+        }
+    }
+
+    /*
+    usage: ExternalShuffle input output [memoryBudgetMegabytes]
+           ExternalShuffle --benchmark [inputMegabytes [memoryBudgetMegabytes]]
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("--benchmark")) {
+            int inputMegabytes = args.length > 1 ? Integer.parseInt(args[1]) : 1024;
+            int budgetMegabytes = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+            ExternalShuffle.benchmark(inputMegabytes, budgetMegabytes);
+            return;
+        }
+        int budgetMegabytes = args.length > 2 ? Integer.parseInt(args[2]) : 256;
+        Path input = Paths.get(args[0]);
+        Path output = Paths.get(args[1]);
+        Path directory = Files.createTempDirectory(output.toAbsolutePath().getParent(), "shuffle");
+        try {
+            new ExternalShuffle((long) budgetMegabytes << 20, directory, RandomSource.stdRandom()).shuffle(input, output);
+        } finally {
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    private void shuffle(Path input, FileChannel out, ByteBuffer outBuffer) throws IOException {
+        long size = Files.size(input);
+        if (size <= this.memoryBudget) {
+            this.shuffleInMemory(input, size, out, outBuffer);
+            return;
+        }
+        int buckets = (int) Math.min(MAX_BUCKETS, (2 * size + this.memoryBudget - 1) / this.memoryBudget);
+        Path[] bucketFiles = this.scatter(input, buckets);
+        try {
+            for (int i = 0; i < buckets; ++i) {
+                this.shuffle(bucketFiles[i], out, outBuffer);
+                Files.delete(bucketFiles[i]);
+                bucketFiles[i] = null;
+            }
+        } finally {
+            for (Path bucketFile : bucketFiles) {
+                if (bucketFile != null) {
+                    Files.deleteIfExists(bucketFile);
+                }
+            }
+        }
+    }
+
+    // copies every line to a uniformly random bucket, chosen when the line starts and kept until its newline
+    private Path[] scatter(Path input, int buckets) throws IOException {
+        Path[] bucketFiles = new Path[buckets];
+        FileChannel[] channels = new FileChannel[buckets];
+        ByteBuffer[] buffers = new ByteBuffer[buckets];
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ)) {
+            for (int i = 0; i < buckets; ++i) {
+                bucketFiles[i] = Files.createTempFile(this.temporaryDirectory, "bucket", ".txt");
+                channels[i] = FileChannel.open(bucketFiles[i], StandardOpenOption.WRITE);
+                buffers[i] = ByteBuffer.allocateDirect(BUCKET_BUFFER_BYTES);
+            }
+            ByteBuffer inBuffer = ByteBuffer.allocateDirect(READ_BUFFER_BYTES);
+            int bucket = -1;
+            long lineLength = 0;
+            while (in.read(inBuffer) >= 0) {
+                inBuffer.flip();
+                while (inBuffer.hasRemaining()) {
+                    if (bucket < 0) {
+                        bucket = this.random.uniform(buckets);
+                        lineLength = 0;
+                    }
+                    int end = ExternalShuffle.endOfLine(inBuffer);
+                    lineLength += end - inBuffer.position();
+                    if (lineLength > this.memoryBudget) {
+                        throw new IllegalArgumentException(String.format("Line longer than the memory budget of %d bytes", this.memoryBudget));
+                    }
+                    ExternalShuffle.copy(inBuffer, end, buffers[bucket], channels[bucket]);
+                    if (inBuffer.get(end - 1) == '\n') {
+                        bucket = -1;
+                    }
+                }
+                inBuffer.clear();
+            }
+            if (bucket >= 0) {
+                if (!buffers[bucket].hasRemaining()) {
+                    ExternalShuffle.drain(buffers[bucket], channels[bucket]);
+                }
+                buffers[bucket].put((byte) '\n');
+            }
+            for (int i = 0; i < buckets; ++i) {
+                ExternalShuffle.drain(buffers[i], channels[i]);
+            }
+        } catch (IOException | RuntimeException exc) {
+            for (Path bucketFile : bucketFiles) {
+                if (bucketFile != null) {
+                    Files.deleteIfExists(bucketFile);
+                }
+            }
+            throw exc;
+        } finally {
+            for (FileChannel channel : channels) {
+                if (channel != null) {
+                    channel.close();
+                }
+            }
+        }
+        return bucketFiles;
+    }
+
+    private void shuffleInMemory(Path input, long size, FileChannel out, ByteBuffer outBuffer) throws IOException {
+        byte[] bytes = new byte[(int) size];
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ)) {
+            ByteBuffer wrapped = ByteBuffer.wrap(bytes);
+            while (wrapped.hasRemaining() && in.read(wrapped) >= 0) {
+                // keep reading until the buffer is full
+            }
+        }
+
+        // line i spans [starts[i], starts[i + 1]), the last one possibly without its newline
+        int[] starts = new int[16];
+        int lines = 0;
+        for (int i = 0; i < bytes.length; ++i) {
+            if (i == 0 || bytes[i - 1] == '\n') {
+                if (lines + 1 == starts.length) {
+                    starts = Arrays.copyOf(starts, 2 * starts.length);
+                }
+                starts[lines++] = i;
+            }
+        }
+        starts[lines] = bytes.length;
+
+        int[] order = new int[lines];
+        for (int i = 0; i < lines; ++i) {
+            int j = this.random.uniform(i + 1);
+            order[i] = order[j];
+            order[j] = i;
+        }
+        for (int line : order) {
+            int from = starts[line];
+            int to = starts[line + 1];
+            ExternalShuffle.write(bytes, from, to - from, out, outBuffer);
+            if (bytes[to - 1] != '\n') {
+                ExternalShuffle.write(new byte[]{'\n'}, 0, 1, out, outBuffer);
+            }
+        }
+    }
+
+    private static void write(byte[] bytes, int offset, int length, FileChannel out, ByteBuffer outBuffer) throws IOException {
+        while (length > 0) {
+            if (!outBuffer.hasRemaining()) {
+                ExternalShuffle.drain(outBuffer, out);
+            }
+            int chunk = Math.min(length, outBuffer.remaining());
+            outBuffer.put(bytes, offset, chunk);
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    // the index just past the next newline, or the limit if the line continues beyond the buffer
+    private static int endOfLine(ByteBuffer buffer) {
+        int limit = buffer.limit();
+        for (int i = buffer.position(); i < limit; ++i) {
+            if (buffer.get(i) == '\n') {
+                return i + 1;
+            }
+        }
+        return limit;
+    }
+
+    // copies src from its position up to index to, draining dst to the channel whenever it fills up
+    private static void copy(ByteBuffer src, int to, ByteBuffer dst, FileChannel channel) throws IOException {
+        int limit = src.limit();
+        while (src.position() < to) {
+            if (!dst.hasRemaining()) {
+                ExternalShuffle.drain(dst, channel);
+            }
+            src.limit(Math.min(to, src.position() + dst.remaining()));
+            dst.put(src);
+            src.limit(limit);
+        }
+    }
+
+    // writes out everything put into the buffer and clears it
+    private static void drain(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /*
+    Shuffles a generated file of random lines with the given memory budget and reports the throughput. The output is
+    checked to hold the same lines: the line count and an order-independent sum of line hashes have to match.
+     */
+    private static void benchmark(int inputMegabytes, int budgetMegabytes) throws IOException {
+        Path directory = Files.createTempDirectory("shuffle");
+        Path input = directory.resolve("input.txt");
+        Path output = directory.resolve("output.txt");
+        try {
+            long[] inputDigest = ExternalShuffle.generateLines(input, (long) inputMegabytes << 20);
+            ExternalShuffle shuffle = new ExternalShuffle((long) budgetMegabytes << 20, directory, RandomSource.splittable(42));
+            long nanosBefore = System.nanoTime();
+            shuffle.shuffle(input, output);
+            long nanos = System.nanoTime() - nanosBefore;
+            long[] outputDigest = ExternalShuffle.digestLines(output);
+            if (!Arrays.equals(inputDigest, outputDigest)) {
+                throw new IllegalStateException("Shuffled output does not hold the input lines");
+            }
+            double gigabytes = Files.size(input) / (double) (1L << 30);
+            System.out.printf("Shuffled %f GB with a %d MB budget in %f s: %f GB/min\n", gigabytes, budgetMegabytes, nanos / 1e9, gigabytes / (nanos / 60e9));
+        } finally {
+            Files.deleteIfExists(input);
+            Files.deleteIfExists(output);
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    // returns {line count, sum of line hashes}
+    private static long[] generateLines(Path file, long bytes) throws IOException {
+        SplittableRandom random = new SplittableRandom(7);
+        long lines = 0;
+        long hashSum = 0;
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(READ_BUFFER_BYTES);
+            byte[] line = new byte[128];
+            for (long written = 0; written < bytes; ) {
+                int length = random.nextInt(8, line.length);
+                for (int i = 0; i < length - 1; ++i) {
+                    line[i] = (byte) random.nextInt('a', 'z' + 1);
+                }
+                line[length - 1] = '\n';
+                hashSum += ExternalShuffle.hash(line, 0, length);
+                lines++;
+                written += length;
+                if (buffer.remaining() < length) {
+                    ExternalShuffle.drain(buffer, out);
+                }
+                buffer.put(line, 0, length);
+            }
+            ExternalShuffle.drain(buffer, out);
+        }
+        return new long[]{lines, hashSum};
+    }
+
+    private static long[] digestLines(Path file) throws IOException {
+        long lines = 0;
+        long hashSum = 0;
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_BYTES);
+            int carried = 0;
+            while (in.read(buffer) >= 0) {
+                byte[] bytes = buffer.array();
+                int end = buffer.position();
+                int start = 0;
+                for (int i = carried; i < end; ++i) {
+                    if (bytes[i] == '\n') {
+                        hashSum += ExternalShuffle.hash(bytes, start, i + 1 - start);
+                        lines++;
+                        start = i + 1;
+                    }
+                }
+                System.arraycopy(bytes, start, bytes, 0, end - start);
+                carried = end - start;
+                buffer.position(carried);
+            }
+        }
+        return new long[]{lines, hashSum};
+    }
+
+    private static long hash(byte[] bytes, int offset, int length) {
+        long h = 1125899906842597L;
+        for (int i = offset; i < offset + length; ++i) {
+            h = 31 * h + bytes[i];
+        }
+        return h;
+    }
+}
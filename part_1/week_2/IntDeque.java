@@ -0,0 +1,170 @@
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
+
+public class IntDeque {
+    /*
+    Deque specialized for int: the same circular-array layout and resize policy as RingBufferDeque, but with unboxed
+    storage. It deliberately does not implement Iterable<Integer>, so neither iteration nor forEach can box by
+    accident; use the primitive iterator or forEach(IntConsumer).
+     */
+    private static final int DEFAULT_CAPACITY = 8;
+
+    private int[] arr;
+    private final int minCapacity;
+    private int head;
+    private int size;
+
+    public IntDeque() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public IntDeque(int initialCapacity) {
+        if (initialCapacity < 1) {
+            throw new IllegalArgumentException(String.format("initialCapacity required to be positive, got %d", initialCapacity));
+        }
+        this.minCapacity = Integer.highestOneBit(Math.max(2, initialCapacity - 1)) << 1;
+        this.arr = new int[this.minCapacity];
+        this.head = 0;
+        this.size = 0;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public void addFirst(int item) {
+        if (this.size == this.arr.length) {
+            this.resize(this.arr.length * 2);
+        }
+        this.head = (this.head - 1) & (this.arr.length - 1);
+        this.arr[this.head] = item;
+        this.size++;
+    }
+
+    public void addLast(int item) {
+        if (this.size == this.arr.length) {
+            this.resize(this.arr.length * 2);
+        }
+        this.arr[(this.head + this.size) & (this.arr.length - 1)] = item;
+        this.size++;
+    }
+
+    public int removeFirst() {
+        this.assertDequeNotEmpty();
+
+        int item = this.arr[this.head];
+        this.head = (this.head + 1) & (this.arr.length - 1);
+        this.size--;
+        this.shrinkIfSparse();
+        return item;
+    }
+
+    public int removeLast() {
+        this.assertDequeNotEmpty();
+
+        int item = this.arr[(this.head + this.size - 1) & (this.arr.length - 1)];
+        this.size--;
+        this.shrinkIfSparse();
+        return item;
+    }
+
+    public PrimitiveIterator.OfInt iterator() {
+        return new IteratorImpl();
+    }
+
+    public void forEach(IntConsumer action) {
+        if (action == null) {
+            throw new IllegalArgumentException("Null arguments not supported");
+        }
+        int mask = this.arr.length - 1;
+        for (int offset = 0; offset < this.size; ++offset) {
+            action.accept(this.arr[(this.head + offset) & mask]);
+        }
+    }
+
+    // breadth-first search over a 1000 x 1000 grid, the frontier being the only queue
+    public static void main(String[] args) {
+        int n = 1000;
+        int[] distance = new int[n * n];
+        for (int i = 0; i < distance.length; ++i) {
+            distance[i] = -1;
+        }
+        IntDeque frontier = new IntDeque();
+        frontier.addLast(0);
+        distance[0] = 0;
+        while (!frontier.isEmpty()) {
+            int site = frontier.removeFirst();
+            int row = site / n;
+            int col = site % n;
+            if (row > 0) {
+                IntDeque.visit(frontier, distance, site, site - n);
+            }
+            if (row < n - 1) {
+                IntDeque.visit(frontier, distance, site, site + n);
+            }
+            if (col > 0) {
+                IntDeque.visit(frontier, distance, site, site - 1);
+            }
+            if (col < n - 1) {
+                IntDeque.visit(frontier, distance, site, site + 1);
+            }
+        }
+        System.out.printf("Distance to the opposite corner: %d\n", distance[n * n - 1]);
+    }
+
+    private static void visit(IntDeque frontier, int[] distance, int from, int to) {
+        if (distance[to] < 0) {
+            distance[to] = distance[from] + 1;
+            frontier.addLast(to);
+        }
+    }
+
+    private void shrinkIfSparse() {
+        if (this.arr.length > this.minCapacity && this.size <= this.arr.length / 4) {
+            this.resize(this.arr.length / 2);
+        }
+    }
+
+    // copies the items in deque order to the start of the new array
+    private void resize(int capacity) {
+        int[] newArr = new int[capacity];
+        int firstChunk = Math.min(this.size, this.arr.length - this.head);
+        System.arraycopy(this.arr, this.head, newArr, 0, firstChunk);
+        System.arraycopy(this.arr, 0, newArr, firstChunk, this.size - firstChunk);
+        this.arr = newArr;
+        this.head = 0;
+    }
+
+    private class IteratorImpl implements PrimitiveIterator.OfInt {
+        private int offset = 0;
+
+        @Override
+        public boolean hasNext() {
+            return this.offset < size;
+        }
+
+        @Override
+        public int nextInt() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException("Called next() on iterator without next value");
+            }
+            return arr[(head + this.offset++) & (arr.length - 1)];
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private void assertDequeNotEmpty() {
+        if (this.size == 0) {
+            throw new NoSuchElementException("Cannot remove element from empty deque");
+        }
+    }
+}
@@ -0,0 +1,146 @@
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.LongConsumer;
+
+public class LongDeque {
+    /*
+    Deque specialized for long: the same circular-array layout and resize policy as RingBufferDeque, but with unboxed
+    storage. It deliberately does not implement Iterable<Long>, so neither iteration nor forEach can box by
+    accident; use the primitive iterator or forEach(LongConsumer).
+     */
+    private static final int DEFAULT_CAPACITY = 8;
+
+    private long[] arr;
+    private final int minCapacity;
+    private int head;
+    private int size;
+
+    public LongDeque() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public LongDeque(int initialCapacity) {
+        if (initialCapacity < 1) {
+            throw new IllegalArgumentException(String.format("initialCapacity required to be positive, got %d", initialCapacity));
+        }
+        this.minCapacity = Integer.highestOneBit(Math.max(2, initialCapacity - 1)) << 1;
+        this.arr = new long[this.minCapacity];
+        this.head = 0;
+        this.size = 0;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public void addFirst(long item) {
+        if (this.size == this.arr.length) {
+            this.resize(this.arr.length * 2);
+        }
+        this.head = (this.head - 1) & (this.arr.length - 1);
+        this.arr[this.head] = item;
+        this.size++;
+    }
+
+    public void addLast(long item) {
+        if (this.size == this.arr.length) {
+            this.resize(this.arr.length * 2);
+        }
+        this.arr[(this.head + this.size) & (this.arr.length - 1)] = item;
+        this.size++;
+    }
+
+    public long removeFirst() {
+        this.assertDequeNotEmpty();
+
+        long item = this.arr[this.head];
+        this.head = (this.head + 1) & (this.arr.length - 1);
+        this.size--;
+        this.shrinkIfSparse();
+        return item;
+    }
+
+    public long removeLast() {
+        this.assertDequeNotEmpty();
+
+        long item = this.arr[(this.head + this.size - 1) & (this.arr.length - 1)];
+        this.size--;
+        this.shrinkIfSparse();
+        return item;
+    }
+
+    public PrimitiveIterator.OfLong iterator() {
+        return new IteratorImpl();
+    }
+
+    public void forEach(LongConsumer action) {
+        if (action == null) {
+            throw new IllegalArgumentException("Null arguments not supported");
+        }
+        int mask = this.arr.length - 1;
+        for (int offset = 0; offset < this.size; ++offset) {
+            action.accept(this.arr[(this.head + offset) & mask]);
+        }
+    }
+
+    public static void main(String[] args) {
+        LongDeque dq = new LongDeque(2);
+        for (int i = 0; i < 10; ++i) {
+            // values beyond the int range
+            dq.addLast((long) i << 40);
+            dq.addFirst(-i);
+        }
+        System.out.println("Printing with forEach:");
+        dq.forEach(it -> System.out.println(it));
+        System.out.printf("Removing first: %d, removing last: %d\n", dq.removeFirst(), dq.removeLast());
+        System.out.printf("Size: %d\n", dq.size());
+    }
+
+    private void shrinkIfSparse() {
+        if (this.arr.length > this.minCapacity && this.size <= this.arr.length / 4) {
+            this.resize(this.arr.length / 2);
+        }
+    }
+
+    // copies the items in deque order to the start of the new array
+    private void resize(int capacity) {
+        long[] newArr = new long[capacity];
+        int firstChunk = Math.min(this.size, this.arr.length - this.head);
+        System.arraycopy(this.arr, this.head, newArr, 0, firstChunk);
+        System.arraycopy(this.arr, 0, newArr, firstChunk, this.size - firstChunk);
+        this.arr = newArr;
+        this.head = 0;
+    }
+
+    private class IteratorImpl implements PrimitiveIterator.OfLong {
+        private int offset = 0;
+
+        @Override
+        public boolean hasNext() {
+            return this.offset < size;
+        }
+
+        @Override
+        public long nextLong() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException("Called next() on iterator without next value");
+            }
+            return arr[(head + this.offset++) & (arr.length - 1)];
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private void assertDequeNotEmpty() {
+        if (this.size == 0) {
+            throw new NoSuchElementException("Cannot remove element from empty deque");
+        }
+    }
+}
@@ -1,19 +1,111 @@
 import edu.princeton.cs.algs4.StdIn;
 import edu.princeton.cs.algs4.StdOut;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+
 public class Permutation {
+    /*
+    Prints k uniformly random tokens of the input. By default all tokens go into a RandomizedQueue first. With
+    "--reservoir" only k tokens are ever held: the input is streamed through a TokenReader, from the given file or
+    from standard input, and sampled with reservoir sampling, so memory stays O(k) whatever the input size.
+
+    usage: Permutation k [--reservoir [file]]
+     */
     public static void main(String[] args) {
         int k = Integer.parseInt(args[0]);
+        if (args.length > 1 && args[1].equals("--reservoir")) {
+            Permutation.printReservoirSample(k, args.length > 2 ? args[2] : null);
+            return;
+        }
+
         RandomizedQueue<String> rq = new RandomizedQueue<>();
         while (!StdIn.isEmpty()) {
             rq.enqueue(StdIn.readString());
         }
-        for (String s : rq) {
-            if (k < 1) {
+        // only k items are read, so the lazy iterator avoids shuffling all of them
+        Iterator<String> shuffled = rq.lazyIterator();
+        while (k > 0 && shuffled.hasNext()) {
+            StdOut.println(shuffled.next());
+            k--;
+        }
+    }
+
+    /*
+    Reservoir sampling with geometric jumps (Li's Algorithm L): after the reservoir is filled, the number of tokens
+    until the next replacement is drawn directly and those tokens are skipped without being decoded. That gives
+    O(k (1 + log(N / k))) random draws and string allocations for N tokens. The reservoir is shuffled before it is
+    printed, since its slots are not in random order.
+     */
+    static String[] sample(TokenReader reader, int k, RandomSource random) throws IOException {
+        if (k < 0) {
+            throw new IllegalArgumentException(String.format("k required to be non-negative, got %d", k));
+        }
+        String[] reservoir = new String[k];
+        int filled = 0;
+        while (filled < k) {
+            String token = reader.next();
+            if (token == null) {
+                return Permutation.shuffled(reservoir, filled, random);
+            }
+            reservoir[filled++] = token;
+        }
+        if (k == 0) {
+            return reservoir;
+        }
+
+        double w = Math.exp(Math.log(Permutation.uniformPositive(random)) / k);
+        while (true) {
+            double gap = Math.floor(Math.log(Permutation.uniformPositive(random)) / Math.log1p(-w));
+            long skip = gap >= Long.MAX_VALUE ? Long.MAX_VALUE : (long) gap;
+            if (reader.skip(skip) < skip) {
                 break;
             }
-            StdOut.println(s);
-            k--;
+            String token = reader.next();
+            if (token == null) {
+                break;
+            }
+            reservoir[random.uniform(k)] = token;
+            w *= Math.exp(Math.log(Permutation.uniformPositive(random)) / k);
+        }
+        return Permutation.shuffled(reservoir, k, random);
+    }
+
+    private static void printReservoirSample(int k, String file) {
+        RandomSource random = RandomSource.stdRandom();
+        try (TokenReader reader = new TokenReader(file != null
+                ? FileChannel.open(Paths.get(file), StandardOpenOption.READ)
+                : Channels.newChannel(System.in))) {
+            for (String token : Permutation.sample(reader, k, random)) {
+                StdOut.println(token);
+            }
+        } catch (IOException exc) {
+            throw new UncheckedIOException(exc);
+        }
+    }
+
+    // the first count items in a uniformly random order
+    private static String[] shuffled(String[] items, int count, RandomSource random) {
+        String[] result = new String[count];
+        for (int i = 0; i < count; ++i) {
+            int j = random.uniform(i + 1);
+            result[i] = result[j];
+            result[j] = items[i];
+        }
+        return result;
+    }
+
+    // uniform in (0, 1), so that its logarithm is finite
+    private static double uniformPositive(RandomSource random) {
+        double u = random.uniform();
+        while (u == 0.0) {
+            u = random.uniform();
         }
+        return u;
     }
-}
\ No newline at end of file
+}
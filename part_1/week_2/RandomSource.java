@@ -0,0 +1,205 @@
+import edu.princeton.cs.algs4.StdRandom;
+
+import java.util.SplittableRandom;
+
+public interface RandomSource {
+    /*
+    Random numbers for the classes that used to call StdRandom directly. StdRandom is backed by one shared
+    java.util.Random, a CAS contention point under multithreading that cannot be seeded per instance. Sources other than
+    stdRandom() are seeded per instance and reproducible; split() derives an independent stream, for handing one to
+    every task or thread.
+
+    Each week compiles on its own, so week_1, week_2 and week_4 carry identical copies of this file.
+     */
+
+    // uniform in [0, n)
+    int uniform(int n);
+
+    // uniform in [0, 1)
+    double uniform();
+
+    long nextLong();
+
+    RandomSource split();
+
+    // the shared StdRandom, honoring StdRandom.setSeed(); split() streams are seeded from it but independent
+    static RandomSource stdRandom() {
+        return StdRandomSource.INSTANCE;
+    }
+
+    // not thread-safe, every thread should use its own split()
+    static RandomSource splittable(long seed) {
+        return new SplittableSource(new SplittableRandom(seed));
+    }
+
+    // xoshiro256**, not thread-safe, every thread should use its own split()
+    static RandomSource xoshiro(long seed) {
+        return new XoshiroSource(seed);
+    }
+
+    /*
+    Safe to share between threads: every thread draws from its own xoshiro256** generator. The generators are seeded
+    from the given seed in the order in which threads first use the source, so results are reproducible whenever that
+    order is.
+     */
+    static RandomSource threadLocalXoshiro(long seed) {
+        return new ThreadLocalXoshiroSource(seed);
+    }
+
+    final class StdRandomSource implements RandomSource {
+        private static final StdRandomSource INSTANCE = new StdRandomSource();
+
+        private StdRandomSource() {
+        }
+
+        @Override
+        public int uniform(int n) {
+            return StdRandom.uniform(n);
+        }
+
+        @Override
+        public double uniform() {
+            return StdRandom.uniform();
+        }
+
+        // three overlapping 30-bit draws, so that every bit is covered
+        @Override
+        public long nextLong() {
+            return ((long) StdRandom.uniform(1 << 30) << 34) ^ ((long) StdRandom.uniform(1 << 30) << 17) ^ StdRandom.uniform(1 << 30);
+        }
+
+        @Override
+        public RandomSource split() {
+            return RandomSource.splittable(this.nextLong());
+        }
+    }
+
+    final class SplittableSource implements RandomSource {
+        private final SplittableRandom random;
+
+        private SplittableSource(SplittableRandom random) {
+            this.random = random;
+        }
+
+        @Override
+        public int uniform(int n) {
+            return this.random.nextInt(n);
+        }
+
+        @Override
+        public double uniform() {
+            return this.random.nextDouble();
+        }
+
+        @Override
+        public long nextLong() {
+            return this.random.nextLong();
+        }
+
+        @Override
+        public RandomSource split() {
+            return new SplittableSource(this.random.split());
+        }
+    }
+
+    final class XoshiroSource implements RandomSource {
+        private long s0;
+        private long s1;
+        private long s2;
+        private long s3;
+
+        // the state is expanded from the seed with SplitMix64, which never yields the forbidden all-zero state
+        private XoshiroSource(long seed) {
+            long x = seed;
+            this.s0 = XoshiroSource.splitMix64(x += 0x9e3779b97f4a7c15L);
+            this.s1 = XoshiroSource.splitMix64(x += 0x9e3779b97f4a7c15L);
+            this.s2 = XoshiroSource.splitMix64(x += 0x9e3779b97f4a7c15L);
+            this.s3 = XoshiroSource.splitMix64(x + 0x9e3779b97f4a7c15L);
+        }
+
+        @Override
+        public int uniform(int n) {
+            if (n < 1) {
+                throw new IllegalArgumentException(String.format("n required to be positive, got %d", n));
+            }
+            // rejection sampling as in java.util.Random, so the result is unbiased for every n
+            int bits;
+            int value;
+            do {
+                bits = (int) (this.nextLong() >>> 33);
+                value = bits % n;
+            } while (bits - value + (n - 1) < 0);
+            return value;
+        }
+
+        @Override
+        public double uniform() {
+            return (this.nextLong() >>> 11) * 0x1.0p-53;
+        }
+
+        @Override
+        public long nextLong() {
+            long result = Long.rotateLeft(this.s1 * 5, 7) * 9;
+            long t = this.s1 << 17;
+            this.s2 ^= this.s0;
+            this.s3 ^= this.s1;
+            this.s1 ^= this.s2;
+            this.s0 ^= this.s3;
+            this.s2 ^= t;
+            this.s3 = Long.rotateLeft(this.s3, 45);
+            return result;
+        }
+
+        /*
+        The split is seeded with the next output of this source and expanded through SplitMix64 like any other seed,
+        so splits of splits are as independent as splits of the root. The streams are not guaranteed to be disjoint
+        parts of the 2^256 - 1 period, but an overlap among any realistic number of streams is astronomically
+        unlikely.
+         */
+        @Override
+        public RandomSource split() {
+            return new XoshiroSource(this.nextLong());
+        }
+
+        private static long splitMix64(long x) {
+            long z = x;
+            z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+            z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+            return z ^ (z >>> 31);
+        }
+    }
+
+    final class ThreadLocalXoshiroSource implements RandomSource {
+        private final ThreadLocal<XoshiroSource> generators;
+
+        private ThreadLocalXoshiroSource(long seed) {
+            XoshiroSource root = new XoshiroSource(seed);
+            // the root is only touched here, once per thread, not on the generators' hot paths
+            this.generators = ThreadLocal.withInitial(() -> {
+                synchronized (root) {
+                    return (XoshiroSource) root.split();
+                }
+            });
+        }
+
+        @Override
+        public int uniform(int n) {
+            return this.generators.get().uniform(n);
+        }
+
+        @Override
+        public double uniform() {
+            return this.generators.get().uniform();
+        }
+
+        @Override
+        public long nextLong() {
+            return this.generators.get().nextLong();
+        }
+
+        @Override
+        public RandomSource split() {
+            return this.generators.get().split();
+        }
+    }
+}
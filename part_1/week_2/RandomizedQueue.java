@@ -1,16 +1,26 @@
-import edu.princeton.cs.algs4.StdRandom;
-
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
 
 public class RandomizedQueue<Item> implements Iterable<Item> {
 
     private Item[] arr;
     private int size;
+    private final RandomSource random;
 
     public RandomizedQueue() {
+        this(RandomSource.stdRandom());
+    }
+
+    public RandomizedQueue(RandomSource random) {
+        if (random == null) {
+            throw new IllegalArgumentException("Null random passed to constructor");
+        }
         this.arr = (Item[]) new Object[4];
         this.size = 0;
+        this.random = random;
     }
 
     public boolean isEmpty() {
@@ -33,7 +43,7 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
     public Item dequeue() {
         this.assertDequeNotEmpty();
 
-        int idx = StdRandom.uniform(this.size);
+        int idx = this.random.uniform(this.size);
         Item elem = this.arr[idx];
         this.swap(this.size - 1, idx, this.arr);
         this.arr[this.size - 1] = null;
@@ -49,7 +59,7 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
     public Item sample() {
         this.assertDequeNotEmpty();
 
-        int idx = StdRandom.uniform(this.size);
+        int idx = this.random.uniform(this.size);
         return this.arr[idx];
     }
 
@@ -57,6 +67,17 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
         return new IteratorImpl();
     }
 
+    // same distribution as iterator(), but O(1) to create and O(k) memory after k items, for reading only a prefix
+    public Iterator<Item> lazyIterator() {
+        return new LazyIteratorImpl();
+    }
+
+    // sized and evenly splitting, each split being a block of one shuffled order of the items
+    @Override
+    public Spliterator<Item> spliterator() {
+        return new SpliteratorImpl(this.permutation(this.size), 0, this.size);
+    }
+
     // required
     public static void main(String[] args) {
         RandomizedQueue.enqueueAndDequeueUntilEmptyThrowsException();
@@ -74,6 +95,16 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
         return newArr;
     }
 
+    private int[] permutation(int n) {
+        int[] idxs = new int[n];
+        for (int i = 0; i < n; ++i) {
+            int j = this.random.uniform(i + 1);
+            idxs[i] = idxs[j];
+            idxs[j] = i;
+        }
+        return idxs;
+    }
+
     private void swap(int i, int j, Item[] array) {
         Item tmp = array[i];
         array[i] = array[j];
@@ -87,7 +118,7 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
 
         private IteratorImpl() {
             this.idx = 0;
-            this.idxsShuffled = StdRandom.permutation(size);
+            this.idxsShuffled = permutation(size);
         }
 
         @Override
@@ -110,6 +141,103 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
         }
     }
 
+    private class LazyIteratorImpl implements Iterator<Item> {
+        /*
+        Fisher-Yates shuffle of the identity index array, one step per next() call. The array is only virtual: the
+        map holds the entries that differ from the identity, and every step adds at most one of them.
+         */
+        private int idx;
+        private final int count;
+        private final HashMap<Integer, Integer> swapped;
+
+        private LazyIteratorImpl() {
+            this.idx = 0;
+            this.count = size;
+            this.swapped = new HashMap<>();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.idx < this.count;
+        }
+
+        @Override
+        public Item next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("Called next() on iterator without next value");
+            }
+            int j = this.idx + random.uniform(this.count - this.idx);
+            int currIdx = this.swapped.getOrDefault(j, j);
+            // position idx is never looked at again, so the value it held moves to j and its own entry can go
+            Integer displaced = this.swapped.remove(this.idx);
+            if (j != this.idx) {
+                this.swapped.put(j, displaced != null ? displaced : this.idx);
+            }
+            this.idx++;
+            return arr[currIdx];
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /*
+    Covers [lo, hi) of a shuffled index order drawn when the spliterator is created, the same as the iterator does,
+    so sequential traversal is still uniformly random. Splits halve the range in O(1). The traversal order carries no
+    meaning across splits, so the spliterator does not report ORDERED and unordered streams need not preserve it.
+     */
+    private class SpliteratorImpl implements Spliterator<Item> {
+        private final int[] idxsShuffled;
+        private int lo;
+        private final int hi;
+
+        private SpliteratorImpl(int[] idxsShuffled, int lo, int hi) {
+            this.idxsShuffled = idxsShuffled;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Item> action) {
+            if (this.lo == this.hi) {
+                return false;
+            }
+            action.accept(arr[this.idxsShuffled[this.lo++]]);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super Item> action) {
+            Item[] items = arr;
+            for (; this.lo < this.hi; ++this.lo) {
+                action.accept(items[this.idxsShuffled[this.lo]]);
+            }
+        }
+
+        @Override
+        public Spliterator<Item> trySplit() {
+            int mid = (this.lo + this.hi) >>> 1;
+            if (mid == this.lo) {
+                return null;
+            }
+            Spliterator<Item> prefix = new SpliteratorImpl(this.idxsShuffled, this.lo, mid);
+            this.lo = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return this.hi - this.lo;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.NONNULL;
+        }
+    }
+
     private void assertArgumentNotNull(Item value) {
         if (value == null) {
             throw new IllegalArgumentException("Null arguments not supported");
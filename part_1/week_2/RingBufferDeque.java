@@ -0,0 +1,163 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class RingBufferDeque<Item> implements Iterable<Item> {
+    /*
+    Same contract as Deque, backed by a circular array instead of linked nodes. The capacity is always a power of two,
+    so wrapping around is a mask instead of a modulo. The array doubles when full and halves when at most a quarter
+    full, but never below the initial capacity; the gap between the two thresholds keeps add/remove sequences at the
+    boundary from resizing back and forth, so every operation is amortized O(1).
+     */
+    private static final int DEFAULT_CAPACITY = 8;
+
+    private Item[] arr;
+    private final int minCapacity;
+    private int head;
+    private int size;
+
+    public RingBufferDeque() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public RingBufferDeque(int initialCapacity) {
+        if (initialCapacity < 1) {
+            throw new IllegalArgumentException(String.format("initialCapacity required to be positive, got %d", initialCapacity));
+        }
+        this.minCapacity = Integer.highestOneBit(Math.max(2, initialCapacity - 1)) << 1;
+        this.arr = (Item[]) new Object[this.minCapacity];
+        this.head = 0;
+        this.size = 0;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public void addFirst(Item item) {
+        this.assertArgumentNotNull(item);
+
+        if (this.size == this.arr.length) {
+            this.resize(this.arr.length * 2);
+        }
+        this.head = (this.head - 1) & (this.arr.length - 1);
+        this.arr[this.head] = item;
+        this.size++;
+    }
+
+    public void addLast(Item item) {
+        this.assertArgumentNotNull(item);
+
+        if (this.size == this.arr.length) {
+            this.resize(this.arr.length * 2);
+        }
+        this.arr[(this.head + this.size) & (this.arr.length - 1)] = item;
+        this.size++;
+    }
+
+    public Item removeFirst() {
+        this.assertDequeNotEmpty();
+
+        Item item = this.arr[this.head];
+        this.arr[this.head] = null;
+        this.head = (this.head + 1) & (this.arr.length - 1);
+        this.size--;
+        this.shrinkIfSparse();
+        return item;
+    }
+
+    public Item removeLast() {
+        this.assertDequeNotEmpty();
+
+        int tail = (this.head + this.size - 1) & (this.arr.length - 1);
+        Item item = this.arr[tail];
+        this.arr[tail] = null;
+        this.size--;
+        this.shrinkIfSparse();
+        return item;
+    }
+
+    public Iterator<Item> iterator() {
+        return new IteratorImpl();
+    }
+
+    public static void main(String[] args) {
+        RingBufferDeque<Integer> dq = new RingBufferDeque<>(2);
+        for (int i = 0; i < 10; ++i) {
+            dq.addLast(i);
+            dq.addFirst(-i);
+        }
+        System.out.printf("Size after wrapping growth: %s\n", dq.size());
+        System.out.println("Printing with foreach:");
+        for (int it : dq) {
+            System.out.println(it);
+        }
+        while (dq.size() > 1) {
+            System.out.printf("Removing first: %s, removing last: %s\n", dq.removeFirst(), dq.removeLast());
+        }
+        try {
+            dq.removeFirst();
+            dq.removeLast();
+        } catch (NoSuchElementException exc) {
+            exc.printStackTrace();
+        }
+        try {
+            dq.addFirst(null);
+        } catch (IllegalArgumentException exc) {
+            exc.printStackTrace();
+        }
+    }
+
+    private void shrinkIfSparse() {
+        if (this.arr.length > this.minCapacity && this.size <= this.arr.length / 4) {
+            this.resize(this.arr.length / 2);
+        }
+    }
+
+    // copies the items in deque order to the start of the new array
+    private void resize(int capacity) {
+        Item[] newArr = (Item[]) new Object[capacity];
+        int firstChunk = Math.min(this.size, this.arr.length - this.head);
+        System.arraycopy(this.arr, this.head, newArr, 0, firstChunk);
+        System.arraycopy(this.arr, 0, newArr, firstChunk, this.size - firstChunk);
+        this.arr = newArr;
+        this.head = 0;
+    }
+
+    private class IteratorImpl implements Iterator<Item> {
+        private int offset = 0;
+
+        @Override
+        public boolean hasNext() {
+            return this.offset < size;
+        }
+
+        @Override
+        public Item next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException("Called next() on iterator without next value");
+            }
+            return arr[(head + this.offset++) & (arr.length - 1)];
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private void assertArgumentNotNull(Item value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Null arguments not supported");
+        }
+    }
+
+    private void assertDequeNotEmpty() {
+        if (this.size == 0) {
+            throw new NoSuchElementException("Cannot remove element from empty deque");
+        }
+    }
+}
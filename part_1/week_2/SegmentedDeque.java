@@ -0,0 +1,211 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class SegmentedDeque<Item> implements Iterable<Item> {
+    /*
+    Same contract as Deque, stored as a doubly linked list of fixed-size chunks. Items occupy
+    [headIndex, CHUNK_SIZE) of the head chunk, full interior chunks and [0, tailIndex) of the tail chunk. Running off
+    either end links in one new chunk and emptying an end chunk unlinks it, so no operation ever copies items and each
+    is O(1) in the worst case, not just amortized. Unlinked chunks go to a small pool and are reused before anything
+    is allocated, which keeps add/remove sequences at a chunk boundary from allocating at all.
+     */
+    private static final int CHUNK_SIZE = 64;
+    private static final int POOL_LIMIT = 4;
+
+    private Chunk<Item> headChunk;
+    private Chunk<Item> tailChunk;
+    private int headIndex;
+    private int tailIndex;
+    private int size;
+    private Chunk<Item> pool;  // singly linked through next
+    private int poolSize;
+
+    public SegmentedDeque() {
+        this.headChunk = new Chunk<>();
+        this.tailChunk = this.headChunk;
+        this.recenter();
+        this.size = 0;
+        this.pool = null;
+        this.poolSize = 0;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public void addFirst(Item item) {
+        this.assertArgumentNotNull(item);
+
+        if (this.headIndex == 0) {
+            Chunk<Item> chunk = this.obtainChunk();
+            chunk.next = this.headChunk;
+            this.headChunk.prev = chunk;
+            this.headChunk = chunk;
+            this.headIndex = CHUNK_SIZE;
+        }
+        this.headChunk.items[--this.headIndex] = item;
+        this.size++;
+    }
+
+    public void addLast(Item item) {
+        this.assertArgumentNotNull(item);
+
+        if (this.tailIndex == CHUNK_SIZE) {
+            Chunk<Item> chunk = this.obtainChunk();
+            chunk.prev = this.tailChunk;
+            this.tailChunk.next = chunk;
+            this.tailChunk = chunk;
+            this.tailIndex = 0;
+        }
+        this.tailChunk.items[this.tailIndex++] = item;
+        this.size++;
+    }
+
+    public Item removeFirst() {
+        this.assertDequeNotEmpty();
+
+        Item item = this.headChunk.items[this.headIndex];
+        this.headChunk.items[this.headIndex++] = null;
+        this.size--;
+        if (this.size == 0) {
+            this.recenter();
+        } else if (this.headIndex == CHUNK_SIZE) {
+            Chunk<Item> emptied = this.headChunk;
+            this.headChunk = emptied.next;
+            this.headChunk.prev = null;
+            this.headIndex = 0;
+            this.releaseChunk(emptied);
+        }
+        return item;
+    }
+
+    public Item removeLast() {
+        this.assertDequeNotEmpty();
+
+        Item item = this.tailChunk.items[--this.tailIndex];
+        this.tailChunk.items[this.tailIndex] = null;
+        this.size--;
+        if (this.size == 0) {
+            this.recenter();
+        } else if (this.tailIndex == 0) {
+            Chunk<Item> emptied = this.tailChunk;
+            this.tailChunk = emptied.prev;
+            this.tailChunk.next = null;
+            this.tailIndex = CHUNK_SIZE;
+            this.releaseChunk(emptied);
+        }
+        return item;
+    }
+
+    public Iterator<Item> iterator() {
+        return new IteratorImpl();
+    }
+
+    public static void main(String[] args) {
+        SegmentedDeque<Integer> dq = new SegmentedDeque<>();
+        for (int i = 0; i < 100; ++i) {
+            dq.addLast(i);
+            dq.addFirst(-i);
+        }
+        System.out.printf("Size after spanning several chunks: %s\n", dq.size());
+        System.out.println("Printing with foreach:");
+        for (int it : dq) {
+            System.out.print(it + " ");
+        }
+        System.out.println();
+        while (dq.size() > 1) {
+            System.out.printf("Removing first: %s, removing last: %s\n", dq.removeFirst(), dq.removeLast());
+        }
+        try {
+            dq.removeFirst();
+            dq.removeLast();
+        } catch (NoSuchElementException exc) {
+            exc.printStackTrace();
+        }
+        try {
+            dq.addFirst(null);
+        } catch (IllegalArgumentException exc) {
+            exc.printStackTrace();
+        }
+    }
+
+    // with a single chunk left, start in its middle so that both ends have room before linking anything
+    private void recenter() {
+        this.headIndex = CHUNK_SIZE / 2;
+        this.tailIndex = CHUNK_SIZE / 2;
+    }
+
+    private Chunk<Item> obtainChunk() {
+        if (this.pool == null) {
+            return new Chunk<>();
+        }
+        Chunk<Item> chunk = this.pool;
+        this.pool = chunk.next;
+        this.poolSize--;
+        chunk.next = null;
+        return chunk;
+    }
+
+    // removals null out their slots, so a chunk is already clear when it gets here
+    private void releaseChunk(Chunk<Item> chunk) {
+        chunk.prev = null;
+        if (this.poolSize == POOL_LIMIT) {
+            chunk.next = null;
+            return;
+        }
+        chunk.next = this.pool;
+        this.pool = chunk;
+        this.poolSize++;
+    }
+
+    private static class Chunk<Item> {
+        private final Item[] items = (Item[]) new Object[CHUNK_SIZE];
+        private Chunk<Item> prev;
+        private Chunk<Item> next;
+    }
+
+    private class IteratorImpl implements Iterator<Item> {
+        private Chunk<Item> chunk = headChunk;
+        private int index = headIndex;
+        private int remaining = size;
+
+        @Override
+        public boolean hasNext() {
+            return this.remaining > 0;
+        }
+
+        @Override
+        public Item next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException("Called next() on iterator without next value");
+            }
+            if (this.index == CHUNK_SIZE) {
+                this.chunk = this.chunk.next;
+                this.index = 0;
+            }
+            this.remaining--;
+            return this.chunk.items[this.index++];
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private void assertArgumentNotNull(Item value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Null arguments not supported");
+        }
+    }
+
+    private void assertDequeNotEmpty() {
+        if (this.size == 0) {
+            throw new NoSuchElementException("Cannot remove element from empty deque");
+        }
+    }
+}
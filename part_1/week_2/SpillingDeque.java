@@ -0,0 +1,435 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class SpillingDeque<Item> implements Iterable<Item>, AutoCloseable {
+    /*
+    Same contract as Deque for queues that do not fit the heap. Items are kept in segments of SEGMENT_ITEMS slots;
+    at least the two segments at either end stay in memory, every segment further inside is written to its own
+    memory-mapped file through the ItemSerializer and dropped from the heap. Whenever an end segment is used up, the
+    next one moves into its place (it is resident already) and the segment behind that starts loading on a background
+    thread, so a whole segment's worth of removals hides the read. Spilling happens synchronously, once per
+    SEGMENT_ITEMS additions.
+
+    Spilling and prefetching are one segment apart: additions only spill the segment that moves to the fourth place
+    from an end, while removals prefetch the one that moves to the second place. Alternating additions and removals
+    at a segment boundary therefore never spill, load or abandon anything, and a prefetch can only be abandoned
+    (and its future cancelled) after a whole segment's worth of additions. The emptied end segment's array is kept as
+    a spare and reused by the next new end segment, like SegmentedDeque's chunk pool, so the boundary does not
+    allocate either.
+
+    close() deletes the spill files. Mapped buffers are only unmapped by the garbage collector, which is fine on Linux
+    and macOS, where a file can be deleted while it is mapped.
+     */
+    public interface ItemSerializer<Item> {
+        // the number of bytes write() will produce for the item
+        int size(Item item);
+
+        void write(Item item, ByteBuffer out);
+
+        Item read(ByteBuffer in);
+    }
+
+    private static final int SEGMENT_ITEMS = 1 << 16;
+    private static final int RESIDENT_AT_EACH_END = 2;
+
+    private final ItemSerializer<Item> serializer;
+    private final Path directory;
+    private final boolean isTemporaryDirectory;
+    private final ExecutorService loader;
+    private Segment<Item>[] segments;  // circular, like RingBufferDeque
+    private Item[] spare;
+    private int firstSegment;
+    private int segmentCount;
+    private long size;
+
+    public SpillingDeque(ItemSerializer<Item> serializer) {
+        this(serializer, SpillingDeque.createTemporaryDirectory(), true);
+    }
+
+    // spill files are created in the given, existing directory
+    public SpillingDeque(ItemSerializer<Item> serializer, Path directory) {
+        this(serializer, directory, false);
+    }
+
+    private SpillingDeque(ItemSerializer<Item> serializer, Path directory, boolean isTemporaryDirectory) {
+        if (serializer == null || directory == null) {
+            throw new IllegalArgumentException("Null serializer or directory passed to constructor");
+        }
+        this.serializer = serializer;
+        this.directory = directory;
+        this.isTemporaryDirectory = isTemporaryDirectory;
+        this.loader = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "SpillingDeque loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.segments = (Segment<Item>[]) new Segment<?>[8];
+        this.firstSegment = 0;
+        this.segmentCount = 1;
+        this.segments[0] = new Segment<>((Item[]) new Object[SEGMENT_ITEMS], SEGMENT_ITEMS / 2);
+        this.spare = null;
+        this.size = 0;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    public long size() {
+        return this.size;
+    }
+
+    public void addFirst(Item item) {
+        this.assertArgumentNotNull(item);
+
+        Segment<Item> head = this.segmentAt(0);
+        if (head.lo == 0) {
+            head = this.obtainSegment(SEGMENT_ITEMS);
+            this.insertFirstSegment(head);
+            // the old third segment is now fourth from the front
+            this.spillIfInterior(RESIDENT_AT_EACH_END + 1);
+        }
+        head.items[--head.lo] = item;
+        this.size++;
+    }
+
+    public void addLast(Item item) {
+        this.assertArgumentNotNull(item);
+
+        Segment<Item> tail = this.segmentAt(this.segmentCount - 1);
+        if (tail.hi == SEGMENT_ITEMS) {
+            tail = this.obtainSegment(0);
+            this.insertLastSegment(tail);
+            this.spillIfInterior(this.segmentCount - 2 - RESIDENT_AT_EACH_END);
+        }
+        tail.items[tail.hi++] = item;
+        this.size++;
+    }
+
+    public Item removeFirst() {
+        this.assertDequeNotEmpty();
+
+        Segment<Item> head = this.segmentAt(0);
+        Item item = head.items[head.lo];
+        head.items[head.lo++] = null;
+        this.size--;
+        if (this.size == 0) {
+            this.recenter();
+        } else if (head.lo == head.hi) {
+            this.deleteFirstSegment();
+            this.releaseSegment(head);
+            this.makeResident(this.segmentAt(0));
+            this.prefetch(RESIDENT_AT_EACH_END - 1);
+        }
+        return item;
+    }
+
+    public Item removeLast() {
+        this.assertDequeNotEmpty();
+
+        Segment<Item> tail = this.segmentAt(this.segmentCount - 1);
+        Item item = tail.items[--tail.hi];
+        tail.items[tail.hi] = null;
+        this.size--;
+        if (this.size == 0) {
+            this.recenter();
+        } else if (tail.lo == tail.hi) {
+            this.deleteLastSegment();
+            this.releaseSegment(tail);
+            this.makeResident(this.segmentAt(this.segmentCount - 1));
+            this.prefetch(this.segmentCount - RESIDENT_AT_EACH_END);
+        }
+        return item;
+    }
+
+    // spilled segments are read from disk on the fly, without bringing them back into the deque
+    public Iterator<Item> iterator() {
+        return new IteratorImpl();
+    }
+
+    @Override
+    public void close() {
+        this.loader.shutdownNow();
+        try {
+            for (int i = 0; i < this.segmentCount; ++i) {
+                Segment<Item> segment = this.segmentAt(i);
+                if (segment.file != null) {
+                    Files.deleteIfExists(segment.file);
+                }
+            }
+            if (this.isTemporaryDirectory) {
+                Files.deleteIfExists(this.directory);
+            }
+        } catch (IOException exc) {
+            throw new UncheckedIOException(exc);
+        }
+    }
+
+    public static void main(String[] args) {
+        int items = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        ItemSerializer<Long> longs = new ItemSerializer<Long>() {
+            @Override
+            public int size(Long item) {
+                return Long.BYTES;
+            }
+
+            @Override
+            public void write(Long item, ByteBuffer out) {
+                out.putLong(item);
+            }
+
+            @Override
+            public Long read(ByteBuffer in) {
+                return in.getLong();
+            }
+        };
+
+        try (SpillingDeque<Long> dq = new SpillingDeque<>(longs)) {
+            long nanosBefore = System.nanoTime();
+            for (long i = 0; i < items; ++i) {
+                dq.addLast(i);
+            }
+            long addNanos = System.nanoTime() - nanosBefore;
+            nanosBefore = System.nanoTime();
+            long first = 0;
+            long last = items - 1;
+            while (!dq.isEmpty()) {
+                if (dq.removeFirst() != first++) {
+                    throw new IllegalStateException("removeFirst out of order");
+                }
+                if (!dq.isEmpty() && dq.removeLast() != last--) {
+                    throw new IllegalStateException("removeLast out of order");
+                }
+            }
+            long removeNanos = System.nanoTime() - nanosBefore;
+            System.out.printf("%d items: %f ns per addLast, %f ns per remove, all in order\n", items, (double) addNanos / items, (double) removeNanos / items);
+        }
+    }
+
+    private Segment<Item> segmentAt(int i) {
+        return this.segments[(this.firstSegment + i) & (this.segments.length - 1)];
+    }
+
+    private void insertFirstSegment(Segment<Item> segment) {
+        this.growSegmentsIfFull();
+        this.firstSegment = (this.firstSegment - 1) & (this.segments.length - 1);
+        this.segments[this.firstSegment] = segment;
+        this.segmentCount++;
+    }
+
+    private void insertLastSegment(Segment<Item> segment) {
+        this.growSegmentsIfFull();
+        this.segments[(this.firstSegment + this.segmentCount) & (this.segments.length - 1)] = segment;
+        this.segmentCount++;
+    }
+
+    private void deleteFirstSegment() {
+        this.segments[this.firstSegment] = null;
+        this.firstSegment = (this.firstSegment + 1) & (this.segments.length - 1);
+        this.segmentCount--;
+    }
+
+    private void deleteLastSegment() {
+        this.segments[(this.firstSegment + this.segmentCount - 1) & (this.segments.length - 1)] = null;
+        this.segmentCount--;
+    }
+
+    // the segment array only holds references and is never shrunk
+    private void growSegmentsIfFull() {
+        if (this.segmentCount < this.segments.length) {
+            return;
+        }
+        Segment<Item>[] newSegments = (Segment<Item>[]) new Segment<?>[this.segments.length * 2];
+        for (int i = 0; i < this.segmentCount; ++i) {
+            newSegments[i] = this.segmentAt(i);
+        }
+        this.segments = newSegments;
+        this.firstSegment = 0;
+    }
+
+    // with a single segment left, start in its middle so that both ends have room
+    private void recenter() {
+        Segment<Item> only = this.segmentAt(0);
+        only.lo = SEGMENT_ITEMS / 2;
+        only.hi = SEGMENT_ITEMS / 2;
+    }
+
+    private boolean isInterior(int i) {
+        return i >= RESIDENT_AT_EACH_END && i < this.segmentCount - RESIDENT_AT_EACH_END;
+    }
+
+    private void spillIfInterior(int i) {
+        if (!this.isInterior(i)) {
+            return;
+        }
+        Segment<Item> segment = this.segmentAt(i);
+        if (segment.items == null) {
+            // a prefetch that is no longer needed, its file is still in place
+            if (segment.loading != null) {
+                segment.loading.cancel(false);
+                segment.loading = null;
+            }
+            return;
+        }
+        try {
+            segment.file = Files.createTempFile(this.directory, "segment", ".bin");
+            this.writeSegment(segment);
+        } catch (IOException exc) {
+            throw new UncheckedIOException(exc);
+        }
+        segment.items = null;
+    }
+
+    private Segment<Item> obtainSegment(int start) {
+        Item[] items = this.spare != null ? this.spare : (Item[]) new Object[SEGMENT_ITEMS];
+        this.spare = null;
+        return new Segment<>(items, start);
+    }
+
+    // removals null out their slots, so an emptied segment's array is already clear when it gets here
+    private void releaseSegment(Segment<Item> segment) {
+        this.spare = segment.items;
+        segment.items = null;
+    }
+
+    private void prefetch(int i) {
+        if (i < 0 || i >= this.segmentCount) {
+            return;
+        }
+        Segment<Item> segment = this.segmentAt(i);
+        if (segment.items != null || segment.loading != null) {
+            return;
+        }
+        Path file = segment.file;
+        int lo = segment.lo;
+        int hi = segment.hi;
+        segment.loading = CompletableFuture.supplyAsync(() -> this.readSegment(file, lo, hi), this.loader);
+    }
+
+    // waits for a prefetch if one is running, or reads the segment right away if none was started
+    private void makeResident(Segment<Item> segment) {
+        if (segment.items != null) {
+            return;
+        }
+        try {
+            segment.items = segment.loading != null ? segment.loading.join() : this.readSegment(segment.file, segment.lo, segment.hi);
+            Files.deleteIfExists(segment.file);
+        } catch (CompletionException exc) {
+            throw exc.getCause() instanceof UncheckedIOException ? (UncheckedIOException) exc.getCause() : exc;
+        } catch (IOException exc) {
+            throw new UncheckedIOException(exc);
+        }
+        segment.loading = null;
+        segment.file = null;
+    }
+
+    private void writeSegment(Segment<Item> segment) throws IOException {
+        long bytes = 0;
+        for (int i = segment.lo; i < segment.hi; ++i) {
+            bytes += this.serializer.size(segment.items[i]);
+        }
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalStateException(String.format("Segment of %d bytes exceeds a single mapping", bytes));
+        }
+        try (FileChannel channel = FileChannel.open(segment.file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            for (int i = segment.lo; i < segment.hi; ++i) {
+                this.serializer.write(segment.items[i], out);
+            }
+        }
+    }
+
+    private Item[] readSegment(Path file, int lo, int hi) {
+        Item[] items = (Item[]) new Object[SEGMENT_ITEMS];
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            for (int i = lo; i < hi; ++i) {
+                items[i] = this.serializer.read(in);
+            }
+        } catch (IOException exc) {
+            throw new UncheckedIOException(exc);
+        }
+        return items;
+    }
+
+    private static Path createTemporaryDirectory() {
+        try {
+            return Files.createTempDirectory("spillingdeque");
+        } catch (IOException exc) {
+            throw new UncheckedIOException(exc);
+        }
+    }
+
+    private static class Segment<Item> {
+        /*
+        Holds items in [lo, hi). Resident segments have items; spilled ones have a file instead, and loading is set
+        while a prefetch of that file is running.
+         */
+        private Item[] items;
+        private int lo;
+        private int hi;
+        private Path file;
+        private CompletableFuture<Item[]> loading;
+
+        private Segment(Item[] items, int start) {
+            this.items = items;
+            this.lo = start;
+            this.hi = start;
+        }
+    }
+
+    private class IteratorImpl implements Iterator<Item> {
+        private int segment = 0;
+        private int idx = segmentAt(0).lo;
+        private Item[] items = segmentAt(0).items;
+        private long remaining = size;
+
+        @Override
+        public boolean hasNext() {
+            return this.remaining > 0;
+        }
+
+        @Override
+        public Item next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException("Called next() on iterator without next value");
+            }
+            if (this.idx == segmentAt(this.segment).hi) {
+                Segment<Item> next = segmentAt(++this.segment);
+                this.idx = next.lo;
+                this.items = next.items != null ? next.items : readSegment(next.file, next.lo, next.hi);
+            }
+            this.remaining--;
+            return this.items[this.idx++];
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private void assertArgumentNotNull(Item value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Null arguments not supported");
+        }
+    }
+
+    private void assertDequeNotEmpty() {
+        if (this.size == 0) {
+            throw new NoSuchElementException("Cannot remove element from empty deque");
+        }
+    }
+}
@@ -0,0 +1,114 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class TokenReader implements AutoCloseable {
+    /*
+    Whitespace-separated UTF-8 tokens read from a channel through one large direct buffer, as a fast replacement for
+    StdIn.readString() on big inputs. Only ASCII whitespace separates tokens; multi-byte UTF-8 sequences never contain
+    ASCII bytes, so they cannot be split by mistake. skip() moves past tokens without building strings for them.
+     */
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer;
+    private byte[] token;
+    private boolean endOfInput;
+
+    public TokenReader(ReadableByteChannel channel) {
+        if (channel == null) {
+            throw new IllegalArgumentException("Null channel passed to constructor");
+        }
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        this.buffer.flip();
+        this.token = new byte[64];
+        this.endOfInput = false;
+    }
+
+    // returns null at the end of the input
+    public String next() throws IOException {
+        if (!this.skipWhitespace()) {
+            return null;
+        }
+        int length = 0;
+        do {
+            int start = this.buffer.position();
+            int end = this.endOfToken();
+            int chunk = end - start;
+            if (length + chunk > this.token.length) {
+                this.token = Arrays.copyOf(this.token, Math.max(2 * this.token.length, length + chunk));
+            }
+            this.buffer.get(this.token, length, chunk);
+            length += chunk;
+        } while (!this.buffer.hasRemaining() && this.fill());
+        return new String(this.token, 0, length, StandardCharsets.UTF_8);
+    }
+
+    // skips up to count tokens, returns how many there were
+    public long skip(long count) throws IOException {
+        long skipped = 0;
+        while (skipped < count && this.skipWhitespace()) {
+            do {
+                this.buffer.position(this.endOfToken());
+            } while (!this.buffer.hasRemaining() && this.fill());
+            skipped++;
+        }
+        return skipped;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    // returns whether a token follows
+    private boolean skipWhitespace() throws IOException {
+        do {
+            int limit = this.buffer.limit();
+            for (int i = this.buffer.position(); i < limit; ++i) {
+                if (!TokenReader.isWhitespace(this.buffer.get(i))) {
+                    this.buffer.position(i);
+                    return true;
+                }
+            }
+            this.buffer.position(limit);
+        } while (this.fill());
+        return false;
+    }
+
+    // the index of the first whitespace byte from the current position on, or the limit if the token continues
+    private int endOfToken() {
+        int limit = this.buffer.limit();
+        for (int i = this.buffer.position(); i < limit; ++i) {
+            if (TokenReader.isWhitespace(this.buffer.get(i))) {
+                return i;
+            }
+        }
+        return limit;
+    }
+
+    // refills the (fully consumed) buffer, returns false at the end of the input
+    private boolean fill() throws IOException {
+        if (this.endOfInput) {
+            return false;
+        }
+        this.buffer.clear();
+        int read = 0;
+        while (read == 0) {
+            read = this.channel.read(this.buffer);
+        }
+        this.buffer.flip();
+        if (read < 0) {
+            this.endOfInput = true;
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f' || b == 0x0B;
+    }
+}
@@ -0,0 +1,262 @@
+import java.util.HashMap;
+import java.util.NoSuchElementException;
+
+public class WeightedRandomizedQueue<Item> {
+    /*
+    RandomizedQueue where sample() and dequeue() pick every item with probability proportional to its weight. Items
+    and weights are stored in arrays with the same swap-with-last removal and doubling/halving as RandomizedQueue, and
+    a Fenwick tree over the weight array gives prefix sums, so picking an item is a single O(log n) descent of the tree.
+    Weight updates go through a map from item to array position, so items have to be distinct.
+
+    Every Fenwick node sums several weights and picks up rounding error with every update, so the tree is rebuilt
+    from the weights, in O(n), after as many updates as it has nodes; that keeps the error bounded at amortized O(1)
+    cost per update.
+     */
+    private Item[] arr;
+    private double[] weights;
+    private double[] tree;  // 1-indexed Fenwick tree, tree[i] sums weights (i - lowbit(i), i]
+    private final HashMap<Item, Integer> positions;
+    private final RandomSource random;
+    private int size;
+    private int updatesSinceRebuild;
+
+    public WeightedRandomizedQueue() {
+        this(RandomSource.stdRandom());
+    }
+
+    public WeightedRandomizedQueue(RandomSource random) {
+        if (random == null) {
+            throw new IllegalArgumentException("Null random passed to constructor");
+        }
+        this.arr = (Item[]) new Object[4];
+        this.weights = new double[4];
+        this.tree = new double[5];
+        this.positions = new HashMap<>();
+        this.random = random;
+        this.size = 0;
+        this.updatesSinceRebuild = 0;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public double totalWeight() {
+        return this.prefixSum(this.size);
+    }
+
+    public void enqueue(Item item, double weight) {
+        this.assertArgumentNotNull(item);
+        this.assertWeightValid(weight);
+        if (this.positions.containsKey(item)) {
+            throw new IllegalArgumentException("Item already enqueued, items required to be distinct");
+        }
+
+        if (this.size == this.arr.length) {
+            this.resize(this.arr.length * 2);
+        }
+        this.arr[this.size] = item;
+        this.weights[this.size] = weight;
+        this.positions.put(item, this.size);
+        this.add(this.size, weight);
+        this.size++;
+        this.rebuildTreeIfDue();
+    }
+
+    public Item dequeue() {
+        this.assertQueueNotEmpty();
+
+        int idx = this.sampleIndex();
+        Item elem = this.arr[idx];
+        int last = this.size - 1;
+        if (idx != last) {
+            this.add(idx, this.weights[last] - this.weights[idx]);
+            this.arr[idx] = this.arr[last];
+            this.weights[idx] = this.weights[last];
+            this.positions.put(this.arr[idx], idx);
+        }
+        this.add(last, -this.weights[last]);
+        this.arr[last] = null;
+        this.weights[last] = 0;
+        this.positions.remove(elem);
+        this.size--;
+
+        if ((this.arr.length > 4) && (this.size <= this.arr.length / 4)) {
+            this.resize(this.arr.length / 2);
+        } else {
+            this.rebuildTreeIfDue();
+        }
+
+        return elem;
+    }
+
+    public Item sample() {
+        this.assertQueueNotEmpty();
+        return this.arr[this.sampleIndex()];
+    }
+
+    public double weight(Item item) {
+        return this.weights[this.positionOf(item)];
+    }
+
+    public void updateWeight(Item item, double weight) {
+        this.assertWeightValid(weight);
+        int idx = this.positionOf(item);
+        this.add(idx, weight - this.weights[idx]);
+        this.weights[idx] = weight;
+        this.rebuildTreeIfDue();
+    }
+
+    /*
+    Checks sampling frequencies on a few items, then times every operation on a queue of the given size (default
+    four million) with random weights.
+     */
+    public static void main(String[] args) {
+        WeightedRandomizedQueue<String> small = new WeightedRandomizedQueue<>(RandomSource.splittable(1));
+        small.enqueue("A", 1);
+        small.enqueue("B", 2);
+        small.enqueue("C", 3);
+        small.enqueue("D", 4);
+        small.updateWeight("A", 10);
+        int[] counts = new int[4];
+        int samples = 1_000_000;
+        for (int i = 0; i < samples; ++i) {
+            counts[small.sample().charAt(0) - 'A']++;
+        }
+        System.out.printf("Sample frequencies for weights 10, 2, 3, 4: %f %f %f %f\n",
+                (double) counts[0] / samples, (double) counts[1] / samples, (double) counts[2] / samples, (double) counts[3] / samples);
+
+        int items = args.length > 0 ? Integer.parseInt(args[0]) : 4_000_000;
+        RandomSource random = RandomSource.splittable(2);
+        Integer[] values = new Integer[items];
+        for (int i = 0; i < items; ++i) {
+            values[i] = i;
+        }
+        WeightedRandomizedQueue<Integer> wrq = new WeightedRandomizedQueue<>(random.split());
+
+        long nanosBefore = System.nanoTime();
+        for (int i = 0; i < items; ++i) {
+            wrq.enqueue(values[i], 1 + 99 * random.uniform());
+        }
+        long enqueueNanos = System.nanoTime() - nanosBefore;
+
+        long checksum = 0;
+        nanosBefore = System.nanoTime();
+        for (int i = 0; i < items; ++i) {
+            checksum += wrq.sample();
+        }
+        long sampleNanos = System.nanoTime() - nanosBefore;
+
+        nanosBefore = System.nanoTime();
+        for (int i = 0; i < items; ++i) {
+            wrq.updateWeight(values[random.uniform(items)], 1 + 99 * random.uniform());
+        }
+        long updateNanos = System.nanoTime() - nanosBefore;
+
+        nanosBefore = System.nanoTime();
+        while (!wrq.isEmpty()) {
+            checksum += wrq.dequeue();
+        }
+        long dequeueNanos = System.nanoTime() - nanosBefore;
+
+        System.out.printf("%d items (checksum %d)\n", items, checksum);
+        System.out.printf("enqueue      : %f ns per operation\n", (double) enqueueNanos / items);
+        System.out.printf("sample       : %f ns per operation\n", (double) sampleNanos / items);
+        System.out.printf("updateWeight : %f ns per operation\n", (double) updateNanos / items);
+        System.out.printf("dequeue      : %f ns per operation\n", (double) dequeueNanos / items);
+    }
+
+    // descends the tree to the first position whose prefix sum exceeds a uniform point in [0, total)
+    private int sampleIndex() {
+        double target = this.random.uniform() * this.totalWeight();
+        int pos = 0;
+        for (int step = Integer.highestOneBit(this.arr.length); step > 0; step >>= 1) {
+            int next = pos + step;
+            if (next <= this.arr.length && this.tree[next] <= target) {
+                pos = next;
+                target -= this.tree[next];
+            }
+        }
+        // rounding can carry the descent past the last item
+        return Math.min(pos, this.size - 1);
+    }
+
+    // adds delta to the weight sum at 0-based idx
+    private void add(int idx, double delta) {
+        for (int i = idx + 1; i < this.tree.length; i += i & -i) {
+            this.tree[i] += delta;
+        }
+    }
+
+    // sum of the weights at 0-based positions [0, count)
+    private double prefixSum(int count) {
+        double sum = 0;
+        for (int i = count; i > 0; i -= i & -i) {
+            sum += this.tree[i];
+        }
+        return sum;
+    }
+
+    private void resize(int capacity) {
+        Item[] newArr = (Item[]) new Object[capacity];
+        double[] newWeights = new double[capacity];
+        System.arraycopy(this.arr, 0, newArr, 0, this.size);
+        System.arraycopy(this.weights, 0, newWeights, 0, this.size);
+        this.arr = newArr;
+        this.weights = newWeights;
+        this.tree = new double[capacity + 1];
+        this.rebuildTree();
+    }
+
+    // called once the weights are consistent again after an operation, never halfway through one
+    private void rebuildTreeIfDue() {
+        if (++this.updatesSinceRebuild >= this.tree.length) {
+            this.rebuildTree();
+        }
+    }
+
+    // O(n) construction: every node passes its sum on to its parent once
+    private void rebuildTree() {
+        for (int i = 1; i < this.tree.length; ++i) {
+            this.tree[i] = this.weights[i - 1];
+        }
+        for (int i = 1; i < this.tree.length; ++i) {
+            int parent = i + (i & -i);
+            if (parent < this.tree.length) {
+                this.tree[parent] += this.tree[i];
+            }
+        }
+        this.updatesSinceRebuild = 0;
+    }
+
+    private int positionOf(Item item) {
+        this.assertArgumentNotNull(item);
+        Integer idx = this.positions.get(item);
+        if (idx == null) {
+            throw new NoSuchElementException("Item not in the weighted randomized queue");
+        }
+        return idx;
+    }
+
+    private void assertArgumentNotNull(Item value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Null arguments not supported");
+        }
+    }
+
+    private void assertWeightValid(double weight) {
+        if (!(weight > 0) || Double.isInfinite(weight)) {
+            throw new IllegalArgumentException(String.format("weight required to be positive and finite, got %f", weight));
+        }
+    }
+
+    private void assertQueueNotEmpty() {
+        if (this.size == 0) {
+            throw new NoSuchElementException("Cannot dequeue element from empty randomized queue");
+        }
+    }
+}
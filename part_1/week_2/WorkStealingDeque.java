@@ -0,0 +1,196 @@
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public class WorkStealingDeque<Item> {
+    /*
+    Chase-Lev work-stealing deque. A single owner thread pushes and pops at the bottom, any number of thief threads
+    steal from the top. Items sit in a circular array between the indices top (inclusive) and bottom (exclusive), both
+    of which only ever grow. Owner push and pop need no lock and, except when popping the very last item, no CAS either;
+    thieves claim an item by a CAS on top, and the owner takes part in that same race when only one item is left.
+    A full array is replaced by one twice the size; the old one is left untouched for thieves still reading from it.
+
+    Since emptiness can change at any time, pop() and steal() return null instead of throwing, and a null from
+    steal() may also mean that it lost a race and can simply be retried.
+     */
+    private static final int DEFAULT_CAPACITY = 32;
+
+    private final AtomicLong top;
+    private volatile long bottom;
+    private volatile CircularArray<Item> array;
+
+    public WorkStealingDeque() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public WorkStealingDeque(int initialCapacity) {
+        if (initialCapacity < 1) {
+            throw new IllegalArgumentException(String.format("initialCapacity required to be positive, got %d", initialCapacity));
+        }
+        this.top = new AtomicLong(0);
+        this.bottom = 0;
+        this.array = new CircularArray<>(Integer.highestOneBit(Math.max(2, initialCapacity - 1)) << 1);
+    }
+
+    // only a snapshot, it may be outdated by the time it is returned
+    public int size() {
+        return (int) Math.max(0, this.bottom - this.top.get());
+    }
+
+    public boolean isEmpty() {
+        return this.size() == 0;
+    }
+
+    // owner only
+    public void push(Item item) {
+        if (item == null) {
+            throw new IllegalArgumentException("Null arguments not supported");
+        }
+        long b = this.bottom;
+        long t = this.top.get();
+        CircularArray<Item> a = this.array;
+        if (b - t >= a.length()) {
+            a = a.grow(t, b);
+            this.array = a;
+        }
+        a.put(b, item);
+        this.bottom = b + 1;  // volatile write, publishes the item to thieves
+    }
+
+    // owner only, returns the most recently pushed item or null if empty
+    public Item pop() {
+        long b = this.bottom - 1;
+        CircularArray<Item> a = this.array;
+        this.bottom = b;  // volatile write followed by a volatile read of top, so thieves see the claim first
+        long t = this.top.get();
+        if (t > b) {
+            this.bottom = t;
+            return null;
+        }
+        Item item = a.get(b);
+        if (t == b) {
+            // the last item, race thieves for it
+            if (!this.top.compareAndSet(t, t + 1)) {
+                item = null;
+            }
+            this.bottom = t + 1;
+            return item;
+        }
+        a.put(b, null);
+        return item;
+    }
+
+    // any thread, returns the least recently pushed item or null if empty or lost to a concurrent pop or steal
+    public Item steal() {
+        long t = this.top.get();
+        long b = this.bottom;
+        if (t >= b) {
+            return null;
+        }
+        Item item = this.array.get(t);
+        if (!this.top.compareAndSet(t, t + 1)) {
+            return null;
+        }
+        return item;
+    }
+
+    /*
+    Stress test: the owner pushes increasing values and pops some of them back while thieves steal. Every value has
+    to be taken exactly once, and since top only grows, each thief has to see its values in increasing order.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int items = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int thieves = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        for (int round = 0; round < rounds; ++round) {
+            WorkStealingDeque<Integer> dq = new WorkStealingDeque<>(2);
+            AtomicIntegerArray taken = new AtomicIntegerArray(items);
+            AtomicBoolean ownerDone = new AtomicBoolean(false);
+            Thread[] workers = new Thread[thieves];
+            String[] failures = new String[thieves];
+            for (int t = 0; t < thieves; ++t) {
+                int thief = t;
+                workers[t] = new Thread(() -> {
+                    int last = -1;
+                    while (true) {
+                        Integer item = dq.steal();
+                        if (item == null) {
+                            if (ownerDone.get() && dq.isEmpty()) {
+                                return;
+                            }
+                            continue;
+                        }
+                        if (item <= last) {
+                            failures[thief] = String.format("Thief stole %d after %d", item, last);
+                        }
+                        last = item;
+                        taken.incrementAndGet(item);
+                    }
+                });
+                workers[t].start();
+            }
+
+            for (int i = 0; i < items; ++i) {
+                dq.push(i);
+                if (i % 3 == 2) {
+                    Integer item = dq.pop();
+                    if (item != null) {
+                        taken.incrementAndGet(item);
+                    }
+                }
+            }
+            for (Integer item = dq.pop(); item != null; item = dq.pop()) {
+                taken.incrementAndGet(item);
+            }
+            ownerDone.set(true);
+            for (Thread worker : workers) {
+                worker.join();
+            }
+
+            for (String failure : failures) {
+                if (failure != null) {
+                    throw new IllegalStateException(failure);
+                }
+            }
+            for (int i = 0; i < items; ++i) {
+                if (taken.get(i) != 1) {
+                    throw new IllegalStateException(String.format("Item %d taken %d times", i, taken.get(i)));
+                }
+            }
+        }
+        System.out.printf("%d rounds of %d items with %d thieves, every item taken exactly once and stolen in order\n", rounds, items, thieves);
+    }
+
+    private static class CircularArray<Item> {
+        private final AtomicReferenceArray<Item> items;
+        private final int mask;
+
+        CircularArray(int capacity) {
+            this.items = new AtomicReferenceArray<>(capacity);
+            this.mask = capacity - 1;
+        }
+
+        int length() {
+            return this.mask + 1;
+        }
+
+        Item get(long idx) {
+            return this.items.get((int) idx & this.mask);
+        }
+
+        void put(long idx, Item item) {
+            this.items.set((int) idx & this.mask, item);
+        }
+
+        // copies the live range [t, b) into an array twice the size
+        CircularArray<Item> grow(long t, long b) {
+            CircularArray<Item> grown = new CircularArray<>(2 * this.length());
+            for (long i = t; i < b; ++i) {
+                grown.put(i, this.get(i));
+            }
+            return grown;
+        }
+    }
+}
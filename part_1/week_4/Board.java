@@ -1,5 +1,3 @@
-import edu.princeton.cs.algs4.StdRandom;
-
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -35,6 +33,7 @@ public class Board {
     }
 
     private final int[][] tiles;
+    private final RandomSource random;
 
     private Integer hamming;
     private Integer manhattan;
@@ -43,7 +42,16 @@ public class Board {
     private Iterable<Board> neighbors;
 
     public Board(int[][] tiles) {
+        this(tiles, RandomSource.stdRandom());
+    }
+
+    // twin() draws from the given source, and so do all boards derived from this one
+    public Board(int[][] tiles, RandomSource random) {
+        if (random == null) {
+            throw new IllegalArgumentException("Null random passed to constructor");
+        }
         this.tiles = tiles;
+        this.random = random;
     }
 
     public String toString() {
@@ -171,7 +179,7 @@ public class Board {
                     candidate.row,
                     candidate.col
             );
-            neighbors.add(new Board(tilesCopy));
+            neighbors.add(new Board(tilesCopy, this.random));
         }
         this.neighbors = neighbors;
         return this.neighbors;
@@ -189,7 +197,7 @@ public class Board {
 
         int[][] tilesCopy = this.copyTiles();
         this.swap(tilesCopy, bpp.bp1.row, bpp.bp1.col, bpp.bp2.row, bpp.bp2.col);
-        this.twin = new Board(tilesCopy);
+        this.twin = new Board(tilesCopy, this.random);
         return this.twin;
     }
 
@@ -220,10 +228,10 @@ public class Board {
     }
 
     private BoardPositionPair getRandomBoardPositionPair() {
-        int row1 = StdRandom.uniform(this.dimension());
-        int col1 = StdRandom.uniform(this.dimension());
-        int row2 = StdRandom.uniform(this.dimension());
-        int col2 = StdRandom.uniform(this.dimension());
+        int row1 = this.random.uniform(this.dimension());
+        int col1 = this.random.uniform(this.dimension());
+        int row2 = this.random.uniform(this.dimension());
+        int col2 = this.random.uniform(this.dimension());
         return new BoardPositionPair(
                 new BoardPosition(row1, col1),
                 new BoardPosition(row2, col2)